@@ -70,13 +70,6 @@ export default {
       secure: false,
       pathRewrite: { '^/api3/': '' },
     },
-    '/es/': {
-      // target: 'http://192.168.50.88:9200/',
-      target: 'http://192.168.50.25:9200/',
-      changeOrigin: true,
-      secure: false,
-      pathRewrite: { '^/es/': '' },
-    },
   },
   test: {
     '/api/': {
@@ -26,11 +26,6 @@ import AIAssistant from '@/components/AIAssistant';
 import { createNote } from '../Note/service';
 import ContextMenu from './components/ContextMenu';
 
-// 获取环境变量，带默认值
-const getEnvVar = (key: keyof ImportMetaEnv, defaultValue: string = ''): string => {
-  return import.meta.env?.[key] || defaultValue;
-};
-
 const generateSpanTerm = (textArr: string[]) => {
   return textArr.map(text => ({
     span_term: {
@@ -49,11 +44,7 @@ const typeOptions = [
 
 const sk = new Searchkit({
   connection: {
-    host: '/es',  // 使用代理地址
-    auth: {
-      username: getEnvVar('VITE_ES_USERNAME', 'elastic'),
-      password: getEnvVar('VITE_ES_PASSWORD', 'wellgone'),
-    },
+    host: '/api/es',  // 经后端检索网关转发，ES账号只保存在后端
   },
   search_settings: {
     search_attributes: [{ field: 'section_text', weight: 1 },{ field: 'book_title', weight: 2 }],
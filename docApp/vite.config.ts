@@ -29,11 +29,6 @@ export default defineConfig(({ mode }) => {
           changeOrigin: true,
           rewrite: (path) => path.replace(/^\/api/, ''),
         },
-        '/es': {
-          target: env.VITE_ES_URL || 'http://localhost:9200',
-          changeOrigin: true,
-          rewrite: (path) => path.replace(/^\/es/, ''),
-        },
       },
     },
   };
@@ -0,0 +1,308 @@
+package top.lvpi.benchmark;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.indices.IndicesStatsResponse;
+import co.elastic.clients.json.JsonData;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestClientBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import top.lvpi.utils.SectionChecksum;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * 章节索引映射对比：同一批合成章节分别写入按第1版、第2版映射创建的临时索引，
+ * 段合并后输出索引大小与段数，再测量书内检索、全文检索加高亮、分面聚合和按页浏览的延迟。
+ * 需要一个装有IK分词插件的ES，地址通过-Des.url指定（默认http://localhost:9200），
+ * 需要认证时加-Des.username、-Des.password，例如
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="EsMappingBenchmark -jvmArgsAppend -Des.url=http://es:9200"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EsMappingBenchmark {
+
+    private static final String[] TERMS = {
+            "合同", "违约", "责任", "当事人", "法院", "判决", "证据", "上诉", "条款", "损害赔偿",
+            "诉讼", "程序", "原告", "被告", "权利", "义务", "履行", "解除", "担保", "侵权",
+            "物权", "债权", "继承", "婚姻", "行政", "处罚", "刑事", "犯罪", "管辖", "仲裁"
+    };
+
+    private static final String[] FILLERS = {"的", "和", "应当", "依照", "本法", "规定", "可以", "不得", "其他", "有关"};
+
+    private static final String[] PUBLISHERS = {"法律出版社", "中国法制出版社", "北京大学出版社", "中国人民大学出版社", "人民法院出版社"};
+
+    private static final String[] CATEGORIES = {"D9", "D90", "D91", "D92", "D923", "D925"};
+
+    private static final String[] TOPICS = {"民法", "刑法", "行政法", "诉讼法", "经济法", "国际法"};
+
+    private static final int CHARS_PER_PAGE = 1500;
+
+    private static final int BULK_SIZE = 1000;
+
+    /**
+     * 映射文件，位于src/main/resources下
+     */
+    @Param({"es/docs-mapping.json", "es/docs-mapping-v2.json"})
+    public String mapping;
+
+    @Param({"100"})
+    public int books;
+
+    @Param({"200"})
+    public int pagesPerBook;
+
+    private RestClient restClient;
+
+    private ElasticsearchClient client;
+
+    private String index;
+
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        RestClientBuilder builder = RestClient.builder(HttpHost.create(System.getProperty("es.url", "http://localhost:9200")));
+        String username = System.getProperty("es.username");
+        if (username != null) {
+            BasicCredentialsProvider credentials = new BasicCredentialsProvider();
+            credentials.setCredentials(AuthScope.ANY,
+                    new UsernamePasswordCredentials(username, System.getProperty("es.password", "")));
+            builder.setHttpClientConfigCallback(c -> c.setDefaultCredentialsProvider(credentials));
+        }
+        restClient = builder.build();
+        client = new ElasticsearchClient(new RestClientTransport(restClient, new JacksonJsonpMapper()));
+
+        index = "bench_mapping_" + mapping.replaceAll("\\W+", "_").toLowerCase(Locale.ROOT);
+        if (client.indices().exists(e -> e.index(index)).value()) {
+            client.indices().delete(d -> d.index(index));
+        }
+        try (InputStream in = EsMappingBenchmark.class.getResourceAsStream("/" + mapping)) {
+            if (in == null) {
+                throw new IOException("找不到映射文件: " + mapping);
+            }
+            client.indices().create(c -> c.index(index).withJson(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        }
+
+        long start = System.nanoTime();
+        load();
+        long loadMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        client.indices().refresh(r -> r.index(index));
+        client.indices().forcemerge(f -> f.index(index).maxNumSegments(1L));
+        IndicesStatsResponse stats = client.indices().stats(s -> s.index(index));
+        long storeBytes = stats.all().primaries().store().sizeInBytes();
+        long segments = stats.all().primaries().segments().count();
+        System.out.printf("%n%s: %d个章节，写入%dms，主分片大小%.2fMB，段数%d%n", mapping, (long) books * pagesPerBook,
+                loadMs, storeBytes / 1024.0 / 1024.0, segments);
+
+        random = new Random(42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try {
+            client.indices().delete(d -> d.index(index));
+        } finally {
+            restClient.close();
+        }
+    }
+
+    /**
+     * 阅读器内检索：限定单本图书，按book_id路由到单个分片
+     */
+    @Benchmark
+    public SearchResponse<JsonData> inBookSearch() throws IOException {
+        String bookId = String.valueOf(random.nextInt(books) + 1);
+        String term = TERMS[random.nextInt(TERMS.length)];
+        return client.search(s -> s
+                .index(index)
+                .routing(bookId)
+                .size(20)
+                .source(src -> src.fetch(false))
+                .query(q -> q.bool(b -> b
+                        .filter(f -> f.term(t -> t.field("book_id").value(bookId)))
+                        .must(m -> m.match(mt -> mt.field("section_text").query(term)))))
+                .highlight(h -> h.fields("section_text", hf -> hf.fragmentSize(100).numberOfFragments(1))),
+                JsonData.class);
+    }
+
+    /**
+     * 全文检索页的主查询：跨图书检索正文与书名并高亮
+     */
+    @Benchmark
+    public SearchResponse<JsonData> fullTextSearch() throws IOException {
+        String term = TERMS[random.nextInt(TERMS.length)] + TERMS[random.nextInt(TERMS.length)];
+        return client.search(s -> s
+                .index(index)
+                .size(20)
+                .source(src -> src.filter(f -> f.includes("book_id", "book_title", "page_num")))
+                .query(q -> q.multiMatch(m -> m.fields("section_text", "book_title^2").query(term)))
+                .highlight(h -> h
+                        .fields("section_text", hf -> hf.fragmentSize(100).numberOfFragments(3))
+                        .fields("book_title", hf -> hf.numberOfFragments(0))),
+                JsonData.class);
+    }
+
+    /**
+     * 全文检索页左侧的分面统计
+     */
+    @Benchmark
+    public SearchResponse<JsonData> facetAggregations() throws IOException {
+        String term = TERMS[random.nextInt(TERMS.length)];
+        return client.search(s -> s
+                .index(index)
+                .size(0)
+                .query(q -> q.match(m -> m.field("section_text").query(term)))
+                .aggregations("publisher", a -> a.terms(t -> t.field("publisher").size(10)))
+                .aggregations("category", a -> a.terms(t -> t.field("category").size(10)))
+                .aggregations("publication_year", a -> a.terms(t -> t.field("publication_year").size(10)))
+                .aggregations("tags", a -> a.terms(t -> t.field("tags.keyword").size(10)))
+                .aggregations("lvl0", a -> a.terms(t -> t.field("topicLevels.lvl0.keyword").size(10))),
+                JsonData.class);
+    }
+
+    /**
+     * 无关键词时按页码顺序浏览单本图书
+     */
+    @Benchmark
+    public SearchResponse<JsonData> pageOrderedBrowse() throws IOException {
+        String bookId = String.valueOf(random.nextInt(books) + 1);
+        return client.search(s -> s
+                .index(index)
+                .routing(bookId)
+                .size(50)
+                .query(q -> q.term(t -> t.field("book_id").value(FieldValue.of(bookId))))
+                .sort(o -> o.field(f -> f.field("book_id").order(SortOrder.Asc)))
+                .sort(o -> o.field(f -> f.field("page_num").order(SortOrder.Asc))),
+                JsonData.class);
+    }
+
+    /**
+     * 写入合成章节，字段与DocSectionDocument序列化结果一致，相同参数总是生成相同内容
+     */
+    private void load() throws IOException {
+        Random source = new Random(20240101L);
+        BulkRequest.Builder bulk = new BulkRequest.Builder();
+        int pending = 0;
+        long sectionId = 0;
+        for (int book = 1; book <= books; book++) {
+            String bookId = String.valueOf(book);
+            Map<String, Object> meta = bookMeta(book, source);
+            for (int page = 1; page <= pagesPerBook; page++) {
+                sectionId++;
+                String text = pageText(source);
+                Map<String, Object> doc = new HashMap<>(meta);
+                doc.put("id", String.valueOf(sectionId));
+                doc.put("section_text", text);
+                doc.put("page_num", page);
+                CRC32 crc = new CRC32();
+                crc.update((page + ":" + text).getBytes(StandardCharsets.UTF_8));
+                doc.put("content_hash", SectionChecksum.of(sectionId, crc.getValue()));
+                String id = String.valueOf(sectionId);
+                bulk.operations(o -> o.index(i -> i.index(index).id(id).routing(bookId).document(doc)));
+                if (++pending == BULK_SIZE) {
+                    send(bulk.build());
+                    bulk = new BulkRequest.Builder();
+                    pending = 0;
+                }
+            }
+        }
+        if (pending > 0) {
+            send(bulk.build());
+        }
+    }
+
+    private void send(BulkRequest request) throws IOException {
+        BulkResponse response = client.bulk(request);
+        if (response.errors()) {
+            throw new IOException("写入合成章节失败: " + response.items().stream()
+                    .filter(item -> item.error() != null)
+                    .findFirst()
+                    .map(item -> item.error().reason())
+                    .orElse(""));
+        }
+    }
+
+    private static Map<String, Object> bookMeta(int book, Random random) {
+        Map<String, Object> meta = new HashMap<>();
+        String topic = TOPICS[random.nextInt(TOPICS.length)];
+        String subTopic = TERMS[random.nextInt(TERMS.length)];
+        List<String> tags = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            tags.add(TERMS[random.nextInt(TERMS.length)]);
+        }
+        Map<String, Object> topicLevels = new HashMap<>();
+        topicLevels.put("lvl0", List.of(topic));
+        topicLevels.put("lvl1", List.of(topic + " > " + subTopic));
+        meta.put("book_id", String.valueOf(book));
+        meta.put("book_title", topic + subTopic + "研究（第" + book + "卷）");
+        meta.put("author", "作者" + random.nextInt(60));
+        meta.put("publisher", PUBLISHERS[random.nextInt(PUBLISHERS.length)]);
+        meta.put("category", CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        meta.put("isbn", String.format("978-7-%05d-%03d-%d", random.nextInt(100000), book % 1000, book % 10));
+        meta.put("file_name", "book-" + book + ".pdf");
+        meta.put("pic_url", "/file/cover/book-" + book + ".jpg");
+        meta.put("publication_year", 1990 + random.nextInt(35));
+        meta.put("type", random.nextInt(3) + 1);
+        meta.put("tags", tags);
+        meta.put("series", List.of(topic + "丛书"));
+        meta.put("opac_series", List.of(topic + "文库"));
+        meta.put("topic_series", List.of(topic));
+        meta.put("topicLevels", topicLevels);
+        meta.put("@timestamp", "2024-01-01T00:00:00Z");
+        meta.put("@version", "1");
+        return meta;
+    }
+
+    private static String pageText(Random random) {
+        StringBuilder text = new StringBuilder(CHARS_PER_PAGE + 16);
+        while (text.length() < CHARS_PER_PAGE) {
+            if (random.nextInt(3) == 0) {
+                text.append(TERMS[random.nextInt(TERMS.length)]);
+            } else {
+                text.append(FILLERS[random.nextInt(FILLERS.length)]);
+            }
+            if (random.nextInt(12) == 0) {
+                text.append('。');
+            }
+        }
+        return text.toString();
+    }
+}
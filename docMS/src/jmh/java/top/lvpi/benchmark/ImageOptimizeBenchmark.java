@@ -0,0 +1,48 @@
+package top.lvpi.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import top.lvpi.utils.ImageUtils;
+import top.lvpi.utils.PDFUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ImageUtils.optimizeImage吞吐量，输入为导入时生成的150 DPI封面PNG
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ImageOptimizeBenchmark {
+
+    private String cover;
+
+    private long coverBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        cover = PDFUtils.exportPageToImage(new ByteArrayInputStream(PdfFixtures.textPdf(1, 42L)));
+        coverBytes = cover.length();
+    }
+
+    @Benchmark
+    public String optimizeImage(IngestCounters counters) {
+        String optimized = ImageUtils.optimizeImage(cover);
+        counters.add(1, coverBytes);
+        return optimized;
+    }
+}
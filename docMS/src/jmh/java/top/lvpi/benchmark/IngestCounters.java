@@ -0,0 +1,25 @@
+package top.lvpi.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 吞吐量辅助计数器，按测量时间归一化后输出为 pages/s 与 MB/s
+ * 每次调用结束时由基准方法累加本次处理的页数与输入字节数
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class IngestCounters {
+
+    private static final double MB = 1024d * 1024d;
+
+    public long pages;
+
+    public double megabytes;
+
+    public void add(int pageCount, long bytes) {
+        pages += pageCount;
+        megabytes += bytes / MB;
+    }
+}
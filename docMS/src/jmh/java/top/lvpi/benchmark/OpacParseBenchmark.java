@@ -0,0 +1,62 @@
+package top.lvpi.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import top.lvpi.model.entity.OpacDocInfo;
+import top.lvpi.utils.DocUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DocUtils.parseOpacHtml吞吐量，使用保存下来的OPAC检索结果页面，不访问网络
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class OpacParseBenchmark {
+
+    /**
+     * src/jmh/resources/opac 下的页面文件名
+     */
+    @Param({"record.html", "not-found.html"})
+    public String fixture;
+
+    private String html;
+
+    private long htmlBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        try (InputStream in = OpacParseBenchmark.class.getResourceAsStream("/opac/" + fixture)) {
+            if (in == null) {
+                throw new IOException("找不到页面文件: " + fixture);
+            }
+            byte[] bytes = in.readAllBytes();
+            html = new String(bytes, StandardCharsets.UTF_8);
+            htmlBytes = bytes.length;
+        }
+    }
+
+    @Benchmark
+    public OpacDocInfo parseOpacHtml(IngestCounters counters) {
+        OpacDocInfo info = DocUtils.parseOpacHtml(html);
+        counters.add(1, htmlBytes);
+        return info;
+    }
+}
@@ -0,0 +1,70 @@
+package top.lvpi.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import top.lvpi.model.entity.DocSection;
+import top.lvpi.utils.PDFUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PDFUtils文本提取吞吐量：串行提取与按页分块的并行提取
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PdfExtractBenchmark {
+
+    @Param({"50", "400"})
+    public int pages;
+
+    @Param({"50"})
+    public int chunkSize;
+
+    private byte[] pdf;
+
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        pdf = PdfFixtures.textPdf(pages, 42L);
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public List<DocSection> extractSerial(IngestCounters counters) throws IOException {
+        List<DocSection> sections = PDFUtils.extractTextToSections(new ByteArrayInputStream(pdf), 1L, "benchmark");
+        counters.add(pages, pdf.length);
+        return sections;
+    }
+
+    @Benchmark
+    public List<DocSection> extractParallel(IngestCounters counters) throws IOException {
+        List<DocSection> sections = PDFUtils.extractTextToSectionsParallel(pdf, 1L, "benchmark", chunkSize, pool);
+        counters.add(pages, pdf.length);
+        return sections;
+    }
+}
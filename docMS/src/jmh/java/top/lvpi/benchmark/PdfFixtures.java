@@ -0,0 +1,110 @@
+package top.lvpi.benchmark;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentInformation;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * 基准测试用PDF生成器
+ * 相同的页数与种子总是生成相同字节的文档，不同机器、不同次运行之间的结果可以直接比较
+ */
+public final class PdfFixtures {
+
+    private static final String[] WORDS = {
+            "contract", "liability", "court", "article", "party", "evidence", "judgment", "appeal",
+            "statute", "clause", "damages", "provision", "plaintiff", "defendant", "procedure", "claim",
+            "the", "of", "and", "to", "in", "shall", "be", "any", "such", "under", "for", "with"
+    };
+
+    private static final float FONT_SIZE = 10.5f;
+    private static final float LEADING = 14f;
+    private static final float MARGIN = 56f;
+    private static final int LINES_PER_PAGE = 48;
+    private static final int WORDS_PER_LINE = 12;
+
+    private PdfFixtures() {
+    }
+
+    /**
+     * 生成带文本层的多页PDF，每页包含标题行、编号条目和正文段落，版式接近书籍正文页
+     *
+     * @param pages 页数
+     * @param seed  随机种子
+     * @return PDF文件内容
+     */
+    public static byte[] textPdf(int pages, long seed) throws IOException {
+        Random random = new Random(seed);
+        try (PDDocument document = new PDDocument()) {
+            for (int p = 1; p <= pages; p++) {
+                PDPage page = new PDPage(PDRectangle.A4);
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, FONT_SIZE);
+                    content.setLeading(LEADING);
+                    content.newLineAtOffset(MARGIN, page.getMediaBox().getHeight() - MARGIN);
+                    for (int line = 0; line < LINES_PER_PAGE; line++) {
+                        content.showText(line(random, p, line));
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            return save(document);
+        }
+    }
+
+    private static String line(Random random, int page, int line) {
+        StringBuilder sb = new StringBuilder(96);
+        if (line == 0) {
+            sb.append(page).append(". Chapter ").append(page);
+        } else if (line % 12 == 1) {
+            sb.append('(').append(line / 12 + 1).append(") ");
+        } else if (line % 12 == 11) {
+            // 段落末行较短，触发段落合并逻辑
+            return sb.append(WORDS[random.nextInt(WORDS.length)]).append('.').toString();
+        }
+        for (int w = 0; w < WORDS_PER_LINE; w++) {
+            if (w > 0) {
+                sb.append(' ');
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 固定文档信息与文件ID后保存，避免保存时间写入文件导致每次生成的字节不同
+     */
+    private static byte[] save(PDDocument document) throws IOException {
+        Calendar date = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        date.clear();
+        date.set(2024, Calendar.JANUARY, 1);
+        PDDocumentInformation info = document.getDocumentInformation();
+        info.setProducer("docMS benchmark");
+        info.setCreationDate(date);
+        info.setModificationDate(date);
+
+        COSString id = new COSString("docMS-benchmark".getBytes(StandardCharsets.US_ASCII));
+        COSArray ids = new COSArray();
+        ids.add(id);
+        ids.add(id);
+        document.getDocument().setDocumentID(ids);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        document.save(out);
+        return out.toByteArray();
+    }
+}
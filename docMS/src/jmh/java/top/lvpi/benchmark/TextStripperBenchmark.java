@@ -0,0 +1,79 @@
+package top.lvpi.benchmark;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import top.lvpi.utils.CustomPDFTextStripper;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CustomPDFTextStripper吞吐量
+ * writeText包含PDFBox文本提取与段落重排两部分，reflow单独测量重排部分，两者相减即为提取本身的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TextStripperBenchmark {
+
+    @Param({"20"})
+    public int pages;
+
+    private PDDocument document;
+
+    private long pdfBytes;
+
+    /**
+     * 未经重排的原始提取文本
+     */
+    private String rawText;
+
+    private long rawTextBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        byte[] pdf = PdfFixtures.textPdf(pages, 42L);
+        pdfBytes = pdf.length;
+        document = PDDocument.load(pdf);
+        rawText = new PDFTextStripper().getText(document);
+        rawTextBytes = rawText.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        document.close();
+    }
+
+    @Benchmark
+    public String writeText(IngestCounters counters) throws IOException {
+        StringWriter writer = new StringWriter();
+        new CustomPDFTextStripper().writeText(document, writer);
+        counters.add(pages, pdfBytes);
+        return writer.toString();
+    }
+
+    @Benchmark
+    public String reflow(IngestCounters counters) {
+        String text = CustomPDFTextStripper.reflow(rawText);
+        counters.add(pages, rawTextBytes);
+        return text;
+    }
+}
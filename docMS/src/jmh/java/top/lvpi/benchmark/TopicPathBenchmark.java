@@ -0,0 +1,112 @@
+package top.lvpi.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import top.lvpi.model.dto.topic.TopicPathDTO;
+import top.lvpi.model.entity.Topic;
+import top.lvpi.service.impl.TopicServiceImpl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图书主题路径构建吞吐量
+ * 主题树保存在内存中，按getTopicWithParents的方式逐级查找父主题后调用TopicServiceImpl.buildTopicPath，
+ * 不包含数据库访问的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class TopicPathBenchmark {
+
+    /**
+     * 主题树深度
+     */
+    @Param({"5"})
+    public int depth;
+
+    /**
+     * 每本图书关联的主题数
+     */
+    @Param({"20"})
+    public int topicsPerDoc;
+
+    private Map<Long, Topic> topics;
+
+    private long[] docTopicIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42L);
+        topics = new HashMap<>();
+        // 根节点的parentId为null，与线上数据一致，路径中会被过滤掉
+        topics.put(1L, topic(1L, null, 0, "法学"));
+        List<Long> parents = new ArrayList<>();
+        parents.add(1L);
+        long nextId = 2;
+        for (int level = 1; level <= depth; level++) {
+            List<Long> current = new ArrayList<>();
+            for (Long parentId : parents) {
+                for (int i = 0; i < 4; i++) {
+                    long id = nextId++;
+                    topics.put(id, topic(id, parentId, level, "主题" + level + "-" + id));
+                    current.add(id);
+                }
+            }
+            parents = current;
+        }
+        docTopicIds = new long[topicsPerDoc];
+        for (int i = 0; i < topicsPerDoc; i++) {
+            docTopicIds[i] = 2 + random.nextInt(topics.size() - 1);
+        }
+    }
+
+    @Benchmark
+    public List<TopicPathDTO> buildDocTopicPaths() {
+        List<TopicPathDTO> result = new ArrayList<>();
+        for (long topicId : docTopicIds) {
+            TopicPathDTO path = TopicServiceImpl.buildTopicPath(topicId, withParents(topicId));
+            if (path != null) {
+                result.add(path);
+            }
+        }
+        return result;
+    }
+
+    private List<Topic> withParents(Long topicId) {
+        LinkedList<Topic> ordered = new LinkedList<>();
+        Topic current = topics.get(topicId);
+        while (current != null && current.getParentId() != null && current.getLevel() != null) {
+            ordered.addFirst(current);
+            current = topics.get(current.getParentId());
+        }
+        return new ArrayList<>(ordered);
+    }
+
+    private static Topic topic(Long id, Long parentId, int level, String name) {
+        Topic topic = new Topic();
+        topic.setId(id);
+        topic.setParentId(parentId);
+        topic.setLevel(level);
+        topic.setName(name);
+        return topic;
+    }
+}
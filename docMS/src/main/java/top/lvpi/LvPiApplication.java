@@ -7,10 +7,12 @@ import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
 
 @SpringBootApplication
 @MapperScan("top.lvpi.mapper")
+@EnableScheduling
 public class LvPiApplication {
     public static void main(String[] args) {
         SpringApplication.run(LvPiApplication.class, args);
@@ -9,6 +9,7 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StreamUtils;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.DriverManager;
@@ -38,6 +39,31 @@ public class DatabaseInitializer implements CommandLineRunner {
         "lp_user", "lp_doc", "lp_doc_section", "lp_img", "lp_topic", "lp_doc_topic", "lp_note", "lp_search_report", "lp_note_report_relate", "lp_doc_file", "lp_file"
     );
 
+    /**
+     * 后续版本新增的表，已有数据库启动时按schema.sql中的建表语句自动补齐
+     */
+    private static final List<String> ADDED_TABLES = Arrays.asList(
+        "lp_es_outbox"
+    );
+
+    /**
+     * 后续版本新增的列，已有数据库启动时自动补齐：{表名, 列名, 列定义}
+     */
+    private static final List<String[]> REQUIRED_COLUMNS = Arrays.<String[]>asList(
+        new String[]{"lp_doc", "extracted_page", "int NULL DEFAULT 0 COMMENT '已完成文本提取的最后页码，用于断点续提'"},
+        new String[]{"lp_doc", "scanned_ratio", "double NULL DEFAULT NULL COMMENT '没有文本层的扫描页占比'"},
+        new String[]{"lp_doc", "failed_pages", "text NULL COMMENT '超过单页时限未能提取的页码，逗号分隔，重新提取时只处理这些页'"},
+        // 可空的普通列只修改元数据，不重建表；已有数据由DocSectionService.backfillContentHash在后台分批补齐
+        new String[]{"lp_doc_section", "content_hash", "bigint unsigned NULL DEFAULT NULL COMMENT '页码与内容的校验值，写入时计算'"}
+    );
+
+    /**
+     * 后续版本新增的索引，已有数据库启动时自动补齐：{表名, 索引名, 索引列}
+     */
+    private static final List<String[]> REQUIRED_INDEXES = Arrays.<String[]>asList(
+        new String[]{"lp_doc_section", "idx_doc_page", "(doc_id, page_num)"}
+    );
+
     @Override
     public void run(String... args) throws Exception {
         String targetDb = "LPMS";
@@ -91,6 +117,10 @@ public class DatabaseInitializer implements CommandLineRunner {
                 initializeUserData();
             } else {
                 log.info("All required database tables already exist");
+                // 补齐新增的表、列和索引
+                addMissingTables();
+                addMissingColumns();
+                addMissingIndexes();
                 // 检查是否需要初始化用户数据
                 if (isUserTableEmpty()) {
                     initializeUserData();
@@ -137,6 +167,65 @@ public class DatabaseInitializer implements CommandLineRunner {
             .toList();
     }
 
+    private void addMissingTables() throws IOException {
+        String schemaSql = null;
+        for (String table : ADDED_TABLES) {
+            Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.tables " +
+                "WHERE table_schema = DATABASE() AND table_name = ?",
+                Integer.class,
+                table
+            );
+            if (count != null && count > 0) {
+                continue;
+            }
+            if (schemaSql == null) {
+                schemaSql = StreamUtils.copyToString(
+                    new ClassPathResource("db/schema.sql").getInputStream(),
+                    StandardCharsets.UTF_8
+                );
+            }
+            String prefix = "CREATE TABLE IF NOT EXISTS `" + table + "`";
+            String statement = Arrays.stream(schemaSql.split(";"))
+                .map(String::trim)
+                .filter(sql -> sql.contains(prefix))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("schema.sql中没有表" + table + "的建表语句"));
+            log.info("Adding missing table {}", table);
+            jdbcTemplate.execute(statement.substring(statement.indexOf(prefix)));
+        }
+    }
+
+    private void addMissingColumns() {
+        for (String[] column : REQUIRED_COLUMNS) {
+            Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.columns " +
+                "WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ?",
+                Integer.class,
+                column[0], column[1]
+            );
+            if (count == null || count == 0) {
+                log.info("Adding missing column {}.{}", column[0], column[1]);
+                jdbcTemplate.execute("ALTER TABLE " + column[0] + " ADD COLUMN " + column[1] + " " + column[2]);
+            }
+        }
+    }
+
+    private void addMissingIndexes() {
+        for (String[] index : REQUIRED_INDEXES) {
+            Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.statistics " +
+                "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?",
+                Integer.class,
+                index[0], index[1]
+            );
+            if (count == null || count == 0) {
+                log.info("Adding missing index {}.{}", index[0], index[1]);
+                jdbcTemplate.execute("ALTER TABLE " + index[0] + " ADD INDEX " + index[1] + " " + index[2]);
+            }
+        }
+    }
+
     private boolean isUserTableEmpty() {
         try {
             Integer count = jdbcTemplate.queryForObject(
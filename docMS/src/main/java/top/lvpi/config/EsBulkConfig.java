@@ -0,0 +1,60 @@
+package top.lvpi.config;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import top.lvpi.utils.EsBulkIndexer;
+
+/**
+ * ES批量索引配置，提供全局共享的EsBulkIndexer，同时进行的bulk请求数在所有导入任务之间共同受限
+ */
+@Slf4j
+@Configuration
+public class EsBulkConfig {
+
+    @Value("${es.bulk.max-operations:1000}")
+    private int maxOperations;
+
+    @Value("${es.bulk.max-size-mb:10}")
+    private int maxSizeMb;
+
+    @Value("${es.bulk.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${es.bulk.max-concurrent-requests:2}")
+    private int maxConcurrentRequests;
+
+    @Value("${es.bulk.max-retries:5}")
+    private int maxRetries;
+
+    @Value("${es.bulk.retry-backoff-ms:500}")
+    private long retryBackoffMs;
+
+    @Value("${es.bulk.await-timeout-ms:600000}")
+    private long awaitTimeoutMs;
+
+    @Value("${es.rebuild.max-concurrent-requests:8}")
+    private int rebuildMaxConcurrentRequests;
+
+    @Primary
+    @Bean(destroyMethod = "close")
+    public EsBulkIndexer esBulkIndexer(ElasticsearchClient elasticsearchClient) {
+        log.info("ES批量索引: 每批最多{}条/{}MB，间隔{}ms，并发请求数{}",
+                maxOperations, maxSizeMb, flushIntervalMs, maxConcurrentRequests);
+        return new EsBulkIndexer(elasticsearchClient, maxOperations, maxSizeMb * 1024L * 1024L, flushIntervalMs,
+                maxConcurrentRequests, maxRetries, retryBackoffMs, awaitTimeoutMs);
+    }
+
+    /**
+     * 全量重建专用的批量索引器，并发请求数单独配置，重建时可以压满ES而不占用日常导入的并发额度
+     */
+    @Bean(name = "rebuildBulkIndexer", destroyMethod = "close")
+    public EsBulkIndexer rebuildBulkIndexer(ElasticsearchClient elasticsearchClient) {
+        log.info("ES全量重建批量索引: 并发请求数{}", rebuildMaxConcurrentRequests);
+        return new EsBulkIndexer(elasticsearchClient, maxOperations, maxSizeMb * 1024L * 1024L, flushIntervalMs,
+                rebuildMaxConcurrentRequests, maxRetries, retryBackoffMs, awaitTimeoutMs);
+    }
+}
@@ -0,0 +1,29 @@
+package top.lvpi.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * PDF文本提取配置，提供页级并行提取使用的有界线程池
+ */
+@Slf4j
+@Configuration
+public class PdfExtractConfig {
+
+    /**
+     * 并行度，小于等于0时使用CPU核数
+     */
+    @Value("${pdf.extract.parallelism:0}")
+    private int parallelism;
+
+    @Bean(name = "pdfExtractPool", destroyMethod = "shutdown")
+    public ForkJoinPool pdfExtractPool() {
+        int size = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        log.info("PDF文本提取线程池并行度: {}", size);
+        return new ForkJoinPool(size);
+    }
+}
@@ -7,12 +7,16 @@ import top.lvpi.common.ErrorCode;
 import top.lvpi.model.dto.doc.DocAddRequest;
 import top.lvpi.model.dto.doc.DocQueryRequest;
 import top.lvpi.model.dto.doc.DocUpdateRequest;
+import top.lvpi.model.dto.es.BulkIndexResult;
+import top.lvpi.model.dto.pdf.PdfExtractOptions;
+import top.lvpi.model.dto.pdf.PdfLoadMode;
 import top.lvpi.model.entity.Doc;
 import top.lvpi.model.entity.LpFile;
 import top.lvpi.model.vo.DocVO;
 import top.lvpi.service.DocService;
 import top.lvpi.service.FileService;
 import top.lvpi.service.PdfService;
+import top.lvpi.utils.CancellationToken;
 import top.lvpi.utils.PDFUtils;
 
 import cn.hutool.core.lang.UUID;
@@ -35,6 +39,7 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.scheduling.annotation.EnableAsync;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import java.net.URLEncoder;
 import java.util.Map;
@@ -46,6 +51,7 @@ import java.util.Arrays;
 import top.lvpi.model.dto.task.TaskProgress;
 import top.lvpi.service.DocFileService;
 import top.lvpi.service.DocSectionEsService;
+import top.lvpi.service.DocSectionService;
 
 @Tag(name = "图书管理", description = "图书相关接口")
 @RestController
@@ -75,9 +81,16 @@ public class DocController {
     @Autowired
     private DocFileService docFileService;
 
+    @Autowired
+    private DocSectionService docSectionService;
+
     // 修改为存储TaskProgress的映射
     private final ConcurrentHashMap<String, TaskProgress> taskProgressMap = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, CompletableFuture<String>> taskResults = new ConcurrentHashMap<>();
+    // 文本提取任务的取消标记
+    private final ConcurrentHashMap<String, CancellationToken> taskCancelTokens = new ConcurrentHashMap<>();
+    // 同一时间只允许一个索引重建任务
+    private final AtomicBoolean reindexRunning = new AtomicBoolean(false);
 
     @Operation(summary = "添加图书", description = "添加新图书")
     @PostMapping("/add")
@@ -462,13 +475,24 @@ public class DocController {
     @Operation(summary = "提取文本", description = "提取PDF文件中的文本内容")
     @PostMapping("/extract/{id}")
     public BaseResponse<String> extractText(
-            @Parameter(description = "图书ID") @PathVariable("id") Long id) {
+            @Parameter(description = "图书ID") @PathVariable("id") Long id,
+            @Parameter(description = "PDF加载方式：memory、mixed、temp-file，不传使用默认配置") @RequestParam(value = "loadMode", required = false) String loadMode) {
         if (id == null || id <= 0) {
             return BaseResponse.error(ErrorCode.PARAMS_ERROR, "图书ID不合法");
         }
+        PdfLoadMode pdfLoadMode;
+        try {
+            pdfLoadMode = PdfLoadMode.fromValue(loadMode);
+        } catch (IllegalArgumentException e) {
+            return BaseResponse.error(ErrorCode.PARAMS_ERROR, "不支持的PDF加载方式：" + loadMode);
+        }
 
-        // 先检查是否已存在章节
-        if (docService.hasDocSections(id)) {
+        // 先检查是否已存在章节，上次提取中断或有超时页（有检查点且未完成）的允许继续提取
+        Doc extractDoc = docService.getDocById(id);
+        boolean resumable = extractDoc != null
+                && !Integer.valueOf(1).equals(extractDoc.getIsExtracted())
+                && extractDoc.getExtractedPage() != null && extractDoc.getExtractedPage() > 0;
+        if (!resumable && docService.hasDocSections(id)) {
             return BaseResponse.error(ErrorCode.OPERATION_ERROR, "该PDF文件已进行过文本提取");
         }
 
@@ -496,6 +520,13 @@ public class DocController {
             .setProgress(0)
             .setCurrentStep("初始化任务");
         taskProgressMap.put(taskId, taskProgress);
+
+        // 提取选项：加载方式与取消标记
+        CancellationToken cancellationToken = new CancellationToken();
+        taskCancelTokens.put(taskId, cancellationToken);
+        PdfExtractOptions extractOptions = new PdfExtractOptions();
+        extractOptions.setLoadMode(pdfLoadMode);
+        extractOptions.setCancellationToken(cancellationToken);
         
         // 提交异步任务
         CompletableFuture<String> future = CompletableFuture.supplyAsync(() -> {
@@ -513,38 +544,14 @@ public class DocController {
                 }
                 
 
-                // 更新进度：检查封面
-                taskProgress.setProgress(10)
-                    .setCurrentStep("检查图书封面");
-                
                 Doc doc = docService.getDocById(id);
-                // 检查是否需要提取封面
-                if (StringUtils.isBlank(doc.getPicUrl())) {
-                    taskProgress.setCurrentStep("提取PDF封面");
-                    try {
-                        // 获取PDF文件输入流
-                        InputStream pdfStream = fileService.getFileInputStream(lpFile.getFileName());
-                        // 提取PDF首页为图片
-                        String base64Image = PDFUtils.exportPageToImage(pdfStream);
-                        // 保存图片到数据库
-                        Long imgId = imgService.saveImage(base64Image, id);
-                        // 更新图书封面URL
-                        DocUpdateRequest updateRequest = new DocUpdateRequest();
-                        updateRequest.setId(id);
-                        updateRequest.setPicUrl("img/" + imgId);
-                        docService.updateDoc(updateRequest);
-                        pdfStream.close();
-                    } catch (Exception e) {
-                        log.error("提取PDF封面失败", e);
-                    }
-                }
 
-                // 更新进度：开始文本提取
+                // 更新进度：开始文本提取（封面在同一次PDF加载中导出）
                 taskProgress.setProgress(30)
                     .setCurrentStep("正在提取PDF文本内容...");
 
                 // 执行文本提取
-                String result = pdfService.extractText(lpFile.getFileName(), id, doc.getTitle());
+                String result = pdfService.extractText(lpFile.getFileName(), id, doc.getTitle(), extractOptions);
 
                 // 更新任务完成状态
                 taskProgress.setStatus(1)
@@ -559,6 +566,8 @@ public class DocController {
                 taskProgress.setStatus(2)
                     .setErrorMessage(e.getMessage());
                 throw new RuntimeException(e);
+            } finally {
+                taskCancelTokens.remove(taskId);
             }
         });
 
@@ -569,6 +578,21 @@ public class DocController {
         return BaseResponse.success(20001,"任务已开始，任务ID:" + taskId);
     }
 
+    @Operation(summary = "取消文本提取任务", description = "取消单本或批量文本提取任务，已提交的页可在下次提取时继续")
+    @PostMapping("/extract/cancel/{taskId}")
+    public BaseResponse<String> cancelExtractTask(@PathVariable("taskId") String taskId) {
+        CancellationToken cancellationToken = taskCancelTokens.get(taskId);
+        if (cancellationToken == null) {
+            return BaseResponse.error(ErrorCode.NOT_FOUND_ERROR, "任务ID不存在或任务已结束");
+        }
+        cancellationToken.cancel();
+        TaskProgress progress = taskProgressMap.get(taskId);
+        if (progress != null && progress.getStatus() == 0) {
+            progress.setCurrentStep("正在取消任务...");
+        }
+        return BaseResponse.success("已请求取消任务");
+    }
+
     @Operation(summary = "查询提取结果", description = "根据任务ID查询提取结果")
     @GetMapping("/extract/result/{taskId}")
     public BaseResponse<TaskProgress> getExtractResult(@PathVariable("taskId") String taskId) {
@@ -927,7 +951,15 @@ public class DocController {
 
     @Operation(summary = "批量提取和导入", description = "批量提取PDF文本并导入到ES")
     @PostMapping("/batch/extract-import")
-    public BaseResponse<String> handleBatchExtractAndImport() {
+    public BaseResponse<String> handleBatchExtractAndImport(
+            @Parameter(description = "PDF加载方式：memory、mixed、temp-file，不传使用默认配置") @RequestParam(value = "loadMode", required = false) String loadMode) {
+        PdfLoadMode pdfLoadMode;
+        try {
+            pdfLoadMode = PdfLoadMode.fromValue(loadMode);
+        } catch (IllegalArgumentException e) {
+            return BaseResponse.error(ErrorCode.PARAMS_ERROR, "不支持的PDF加载方式：" + loadMode);
+        }
+
         // 生成唯一的任务ID
         String taskId = UUID.randomUUID().toString();
         
@@ -938,6 +970,13 @@ public class DocController {
             .setProgress(0)
             .setCurrentStep("初始化批量提取任务");
         taskProgressMap.put(taskId, taskProgress);
+
+        // 提取选项：加载方式与取消标记，所有图书共用
+        CancellationToken cancellationToken = new CancellationToken();
+        taskCancelTokens.put(taskId, cancellationToken);
+        PdfExtractOptions extractOptions = new PdfExtractOptions();
+        extractOptions.setLoadMode(pdfLoadMode);
+        extractOptions.setCancellationToken(cancellationToken);
         
         // 提交异步任务
         CompletableFuture<String> future = CompletableFuture.supplyAsync(() -> {
@@ -964,25 +1003,35 @@ public class DocController {
                     taskProgress.setProgress(progress)
                         .setCurrentStep(String.format("正在提取第%d/%d本图书", current, total));
 
-                    //根据图书id获取file信息
-                    DocFileDTO docFileDTO = docFileService.getDocFilesNoDeleteByDocId(doc.getId());
-                    if (docFileDTO == null) {
-                        throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "图书文件不存在");
-                    }
+                    try {
+                        //根据图书id获取file信息，单本图书的问题只记录失败，不中断整个批次
+                        DocFileDTO docFileDTO = docFileService.getDocFilesNoDeleteByDocId(doc.getId());
+                        if (docFileDTO == null) {
+                            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "图书文件不存在");
+                        }
 
-                    LpFile lpFile = lpFileService.getById(docFileDTO.getFileId());
-                    if (lpFile == null) {
-                        throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "文件不存在");
-                    }
+                        LpFile lpFile = lpFileService.getById(docFileDTO.getFileId());
+                        if (lpFile == null) {
+                            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "文件不存在");
+                        }
 
-                    try {
                         if (lpFile != null) {
-                            String result = pdfService.extractText(lpFile.getFileName(), doc.getId(), doc.getTitle());
-                            resultBuilder.append(String.format("图书ID:%d，名称：%s - 提取成功\n", doc.getId(), doc.getTitle()));
+                            String result = pdfService.extractText(lpFile.getFileName(), doc.getId(), doc.getTitle(), extractOptions);
+                            resultBuilder.append(String.format("图书ID:%d，名称：%s - %s\n", doc.getId(), doc.getTitle(), result));
                         }
                     } catch (Exception e) {
                         resultBuilder.append(String.format("图书ID:%d，名称：%s - 提取失败: %s\n", doc.getId(), doc.getTitle(), e.getMessage()));
                     }
+
+                    // 每本书处理完后检查是否已取消，取消后不再导入ES
+                    if (cancellationToken.isCancelled()) {
+                        String cancelResult = String.format("任务已取消，已处理%d/%d本图书。\n详细结果：\n%s", current, total, resultBuilder);
+                        taskProgress.setStatus(2)
+                            .setCurrentStep("任务已取消")
+                            .setErrorMessage("任务已取消")
+                            .setResult(cancelResult);
+                        return cancelResult;
+                    }
                 }
 
                 // 开始导入到ES
@@ -998,7 +1047,14 @@ public class DocController {
                     try {
                         if (doc != null) {
                             // 导入到ES
-                            docSectionEsService.importDocSections(doc.getId());
+                            BulkIndexResult indexResult = docSectionEsService.importDocSections(doc.getId());
+                            if (indexResult.getFailed() > 0) {
+                                BulkIndexResult.Failure first = indexResult.getFailures().get(0);
+                                resultBuilder.append(String.format("图书ID:%d，名称：%s - 导入ES部分失败: %d/%d条失败，章节ID:%s，原因：%s\n",
+                                        doc.getId(), doc.getTitle(), indexResult.getFailed(), indexResult.getTotal(),
+                                        first.getId(), first.getReason()));
+                                continue;
+                            }
                             resultBuilder.append(String.format("图书ID:%d，名称：%s - 导入ES成功\n", doc.getId(), doc.getTitle()));
                             
                             // 更新图书状态为已索引
@@ -1024,6 +1080,8 @@ public class DocController {
                 taskProgress.setStatus(2)
                     .setErrorMessage(e.getMessage());
                 throw new RuntimeException(e);
+            } finally {
+                taskCancelTokens.remove(taskId);
             }
         });
         
@@ -1048,6 +1106,88 @@ public class DocController {
         return BaseResponse.success(progress);
     }
 
+    @Operation(summary = "重建章节索引", description = "按图书ID分片并行流式读取全部章节写入新版本索引后切换别名，重建期间查询不受影响；进度、速度与剩余时间通过批量任务状态接口查询，可通过取消接口中止")
+    @PostMapping("/batch/reindex")
+    public BaseResponse<String> handleBatchReindex(
+            @Parameter(description = "分片数，不填时使用配置的默认值") @RequestParam(value = "slices", required = false) Integer slices) {
+        // 每个分片占用两个数据库连接，上限由连接池大小决定
+        int maxSlices = docSectionEsService.getMaxReindexSlices();
+        if (slices != null && (slices < 1 || slices > maxSlices)) {
+            return BaseResponse.error(ErrorCode.PARAMS_ERROR, "分片数须在1到" + maxSlices + "之间");
+        }
+        if (!reindexRunning.compareAndSet(false, true)) {
+            return BaseResponse.error(ErrorCode.OPERATION_ERROR, "已有正在进行的索引重建任务");
+        }
+
+        // 生成唯一的任务ID
+        String taskId = UUID.randomUUID().toString();
+
+        // 初始化任务进度
+        TaskProgress taskProgress = new TaskProgress()
+            .setTaskId(taskId)
+            .setStatus(0)
+            .setProgress(0)
+            .setCurrentStep("初始化索引重建任务");
+        taskProgressMap.put(taskId, taskProgress);
+
+        CancellationToken cancellationToken = new CancellationToken();
+        taskCancelTokens.put(taskId, cancellationToken);
+
+        // 提交异步任务
+        CompletableFuture<String> future = CompletableFuture.supplyAsync(() -> {
+            try {
+                long start = System.currentTimeMillis();
+                BulkIndexResult indexResult = docSectionEsService.reindexAll(slices == null ? 0 : slices, cancellationToken, p -> {
+                    long total = p.getTotalSections();
+                    int progress = total > 0 ? (int) Math.min(99, p.getSubmittedSections() * 100 / total) : 99;
+                    taskProgress.setProgress(progress)
+                        .setProcessed(p.getSubmittedSections())
+                        .setTotal(total)
+                        .setDocsPerSecond(p.getDocsPerSecond())
+                        .setMbPerSecond(p.getMbPerSecond())
+                        .setEtaSeconds(p.getEtaSeconds())
+                        .setCurrentStep(String.format("已提交%d/%d条章节，%d/%d个分片已读完，%.0f条/秒，%.2fMB/秒",
+                            p.getSubmittedSections(), total, p.getCompletedSlices(), p.getSlices(),
+                            p.getDocsPerSecond(), p.getMbPerSecond()));
+                });
+
+                String result = String.format("共索引%d条章节，成功%d条，失败%d条，重试%d次，耗时%d秒",
+                        indexResult.getTotal(), indexResult.getSucceeded(), indexResult.getFailed(), indexResult.getRetried(),
+                        (System.currentTimeMillis() - start) / 1000);
+                if (indexResult.getFailed() > 0) {
+                    BulkIndexResult.Failure first = indexResult.getFailures().get(0);
+                    result += String.format("，首条失败章节ID:%s，原因：%s", first.getId(), first.getReason());
+                }
+                if (cancellationToken.isCancelled()) {
+                    taskProgress.setStatus(2)
+                        .setCurrentStep("任务已取消")
+                        .setErrorMessage("任务已取消")
+                        .setResult(result);
+                    return result;
+                }
+                taskProgress.setStatus(1)
+                    .setProgress(100)
+                    .setCurrentStep("索引重建完成")
+                    .setResult(result);
+                return result;
+            } catch (BusinessException e) {
+                taskProgress.setStatus(2)
+                    .setErrorMessage(e.getMessage());
+                throw new RuntimeException(e);
+            } catch (RuntimeException e) {
+                taskProgress.setStatus(2)
+                    .setErrorMessage("索引重建失败：" + e.getMessage());
+                throw e;
+            } finally {
+                taskCancelTokens.remove(taskId);
+                reindexRunning.set(false);
+            }
+        });
+
+        taskResults.put(taskId, future);
+        return BaseResponse.success(20001, "任务已开始，任务ID:" + taskId);
+    }
+
     @Operation(summary = "批量自动解析OPAC主题标签", description = "自动解析所有未处理的OPAC主题标签信息")
     @PostMapping("/opac/topics/batch")
     public BaseResponse<String> batchParseOPACTopics() {
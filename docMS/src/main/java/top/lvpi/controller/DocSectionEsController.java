@@ -1,6 +1,9 @@
 package top.lvpi.controller;
 
 import top.lvpi.common.BaseResponse;
+import top.lvpi.common.BusinessException;
+import top.lvpi.common.ErrorCode;
+import top.lvpi.model.dto.es.CursorPage;
 import top.lvpi.model.es.DocSectionDocument;
 import top.lvpi.service.DocSectionEsService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -17,6 +20,11 @@ import org.springframework.web.bind.annotation.*;
 @RequiredArgsConstructor
 public class DocSectionEsController {
 
+    /**
+     * 游标翻页每页记录数上限
+     */
+    private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+
     private final DocSectionEsService docSectionEsService;
 
     @Operation(summary = "导入指定ID的章节到ES", description = "根据章节ID将单个章节导入到Elasticsearch")
@@ -90,4 +98,31 @@ public class DocSectionEsController {
         Page<DocSectionDocument> result = docSectionEsService.search(keyword, isbn, docId, docTitle,author, publisher, pageNum, PageRequest.of(page, size));
         return BaseResponse.success(result);
     }
-} 
\ No newline at end of file
+
+    @Operation(summary = "游标翻页搜索章节", description = "条件与/search相同，按上一页返回的游标续读下一页，翻页深度不影响速度，翻页期间的索引写入不影响结果")
+    @GetMapping("/search/cursor")
+    public BaseResponse<CursorPage<DocSectionDocument>> searchAfter(
+            @Parameter(description = "搜索关键词，可选") @RequestParam(required = false) String keyword,
+            @Parameter(description = "ISBN，可选") @RequestParam(required = false) String isbn,
+            @Parameter(description = "书籍ID，可选") @RequestParam(required = false) String docId,
+            @Parameter(description = "书籍名称，可选") @RequestParam(required = false) String docTitle,
+            @Parameter(description = "作者，可选") @RequestParam(required = false) String author,
+            @Parameter(description = "出版社，可选") @RequestParam(required = false) String publisher,
+            @Parameter(description = "页码，可选") @RequestParam(required = false) Integer pageNum,
+            @Parameter(description = "上一页返回的游标，首页不传") @RequestParam(required = false) String cursor,
+            @Parameter(description = "每页记录数") @RequestParam(defaultValue = "10") int size) {
+        if (size <= 0 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "每页记录数须在1到" + MAX_CURSOR_PAGE_SIZE + "之间");
+        }
+        return BaseResponse.success(docSectionEsService.searchAfter(keyword, isbn, docId, docTitle, author, publisher,
+                pageNum, cursor, size));
+    }
+
+    @Operation(summary = "释放翻页游标", description = "未读到最后一页就放弃翻页时调用，提前释放ES中的时间点")
+    @DeleteMapping("/search/cursor")
+    public BaseResponse<String> closeCursor(
+            @Parameter(description = "游标") @RequestParam String cursor) {
+        docSectionEsService.closeCursor(cursor);
+        return BaseResponse.success("游标已释放");
+    }
+}
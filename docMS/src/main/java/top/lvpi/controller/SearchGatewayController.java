@@ -0,0 +1,32 @@
+package top.lvpi.controller;
+
+import top.lvpi.service.SearchGatewayService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@Tag(name = "全文检索网关", description = "兼容ES的_msearch接口，供全文检索页面的Searchkit使用")
+@RestController
+@RequestMapping("/es")
+@RequiredArgsConstructor
+public class SearchGatewayController {
+
+    private final SearchGatewayService searchGatewayService;
+
+    /**
+     * 响应体为ES原样的_msearch结果，不包装为BaseResponse，instantsearch客户端直接解析
+     */
+    @Operation(summary = "多条检索", description = "请求体为NDJSON，校验并限制返回条数、聚合与高亮后转发到ES，相同请求直接返回缓存结果")
+    @PostMapping(value = {"/_msearch", "/{index}/_msearch"}, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> msearch(
+            @Parameter(description = "索引名，可选") @PathVariable(required = false) String index,
+            @RequestBody String body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(searchGatewayService.msearch(index, body));
+    }
+}
@@ -1,10 +1,13 @@
 package top.lvpi.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import top.lvpi.model.dto.es.DocChecksum;
+import top.lvpi.model.dto.es.DocSectionCount;
 import top.lvpi.model.entity.DocSection;
 import top.lvpi.model.vo.DocSectionVO;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.util.List;
 
@@ -18,4 +21,57 @@ public interface DocSectionMapper extends BaseMapper<DocSection> {
     List<DocSectionVO> selectSectionWithDocByDocId(@Param("docId") Long docId);
     
     void updateIsIndexedById(@Param("docId") Long docId, @Param("isIndexed") Integer isIndexed);
-} 
\ No newline at end of file
+
+    Long selectExtractedDocIdBySameFile(@Param("fileName") String fileName, @Param("excludeDocId") Long excludeDocId);
+
+    int copySections(@Param("sourceDocId") Long sourceDocId, @Param("targetDocId") Long targetDocId, @Param("title") String title);
+
+    /**
+     * 按当前页码与正文重新计算章节的content_hash，用于只更新部分字段之后
+     * @param id 章节ID
+     */
+    int refreshContentHash(@Param("id") Long id);
+
+    /**
+     * 补齐主键在[fromId, toId)内缺少content_hash的章节
+     * @return 更新的行数
+     */
+    int backfillContentHash(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    /**
+     * 章节表当前的最大主键，表为空时为null
+     */
+    Long selectMaxId();
+
+    /**
+     * 缺少content_hash的章节中最小的主键，全部补齐时为null
+     */
+    Long selectMinIdWithoutHash();
+
+    /**
+     * 按图书ID、页码顺序逐行读取一段图书ID范围内的章节，结果不在内存中累积
+     * @param fromDocId 起始图书ID（含），为null时不限
+     * @param toDocId 结束图书ID（含），为null时不限
+     * @param handler 逐行处理章节
+     */
+    void streamSectionsForIndex(@Param("fromDocId") Long fromDocId, @Param("toDocId") Long toDocId,
+                                ResultHandler<DocSection> handler);
+
+    /**
+     * 按图书ID顺序统计各图书未删除的章节数，用于划分重建分片
+     */
+    List<DocSectionCount> selectSectionCounts();
+
+    /**
+     * 查询一本图书未删除章节的ID与内容校验值，不读取正文
+     * @param docId 图书ID
+     */
+    List<DocSection> selectSectionHashes(@Param("docId") Long docId);
+
+    /**
+     * 按图书ID顺序分页统计各图书未删除章节的数量与校验值之和，只统计未删除的图书
+     * @param afterDocId 从大于该ID的图书开始
+     * @param limit 最多返回的图书数
+     */
+    List<DocChecksum> selectDocChecksums(@Param("afterDocId") Long afterDocId, @Param("limit") int limit);
+}
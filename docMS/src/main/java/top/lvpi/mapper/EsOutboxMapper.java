@@ -0,0 +1,36 @@
+package top.lvpi.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import top.lvpi.model.entity.EsOutbox;
+
+import java.util.List;
+
+@Mapper
+public interface EsOutboxMapper extends BaseMapper<EsOutbox> {
+
+    /**
+     * 按写入顺序取出已到处理时间的记录
+     *
+     * @param limit 最多取出的条数
+     * @return 待同步记录
+     */
+    @Select("SELECT * FROM lp_es_outbox WHERE next_retry_time <= NOW() ORDER BY id LIMIT #{limit}")
+    List<EsOutbox> selectPending(@Param("limit") int limit);
+
+    /**
+     * 记录一次失败，并推迟下次处理时间
+     *
+     * @param ids          记录ID
+     * @param error        失败原因
+     * @param delaySeconds 推迟的秒数
+     * @return 更新的行数
+     */
+    @Update("<script>UPDATE lp_es_outbox SET attempts = attempts + 1, last_error = #{error}, " +
+            "next_retry_time = DATE_ADD(NOW(), INTERVAL #{delaySeconds} SECOND) WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int markFailed(@Param("ids") List<Long> ids, @Param("error") String error, @Param("delaySeconds") long delaySeconds);
+}
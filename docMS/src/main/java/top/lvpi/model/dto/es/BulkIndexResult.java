@@ -0,0 +1,62 @@
+package top.lvpi.model.dto.es;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 一次批量索引的结果，失败的文档逐条列出
+ */
+@Data
+public class BulkIndexResult {
+    /**
+     * 提交的文档数
+     */
+    private int total;
+
+    /**
+     * 索引成功的文档数
+     */
+    private int succeeded;
+
+    /**
+     * 最终失败的文档数
+     */
+    private int failed;
+
+    /**
+     * 因429等可重试错误重新提交的次数
+     */
+    private int retried;
+
+    /**
+     * 增量同步时内容未变化、没有提交的文档数；全量重建时索引中已有更新的版本、没有覆盖的文档数
+     */
+    private int skipped;
+
+    /**
+     * 失败的文档明细
+     */
+    private List<Failure> failures;
+
+    /**
+     * 单条文档的失败信息
+     */
+    @Data
+    public static class Failure {
+        /**
+         * 文档ID
+         */
+        private String id;
+
+        /**
+         * HTTP状态码，请求未得到响应时为0
+         */
+        private int status;
+
+        /**
+         * 失败原因
+         */
+        private String reason;
+    }
+}
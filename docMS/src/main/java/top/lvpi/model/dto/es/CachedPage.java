@@ -0,0 +1,25 @@
+package top.lvpi.model.dto.es;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 缓存中的一页检索结果，Spring Data的Page不能直接反序列化
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CachedPage<T> {
+    /**
+     * 当前页的结果
+     */
+    private List<T> content;
+
+    /**
+     * 命中总数
+     */
+    private long total;
+}
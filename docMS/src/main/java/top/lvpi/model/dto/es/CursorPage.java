@@ -0,0 +1,30 @@
+package top.lvpi.model.dto.es;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 游标翻页的一页结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    /**
+     * 当前页的结果
+     */
+    private List<T> content;
+
+    /**
+     * 命中总数，超过统计上限时为下限值
+     */
+    private long total;
+
+    /**
+     * 下一页的游标，为null表示已是最后一页
+     */
+    private String cursor;
+}
@@ -0,0 +1,24 @@
+package top.lvpi.model.dto.es;
+
+import lombok.Data;
+
+/**
+ * 一本图书全部章节的数量与校验值之和
+ */
+@Data
+public class DocChecksum {
+    /**
+     * 图书ID
+     */
+    private Long docId;
+
+    /**
+     * 章节数
+     */
+    private Long sectionCount;
+
+    /**
+     * 各章节校验值之和
+     */
+    private Long checksum;
+}
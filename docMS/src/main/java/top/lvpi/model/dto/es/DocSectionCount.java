@@ -0,0 +1,19 @@
+package top.lvpi.model.dto.es;
+
+import lombok.Data;
+
+/**
+ * 一本图书未删除的章节数
+ */
+@Data
+public class DocSectionCount {
+    /**
+     * 图书ID
+     */
+    private Long docId;
+
+    /**
+     * 章节数
+     */
+    private Long sectionCount;
+}
@@ -0,0 +1,39 @@
+package top.lvpi.model.dto.es;
+
+import lombok.Data;
+
+/**
+ * 一次数据库与ES一致性核对的结果
+ */
+@Data
+public class ReconcileResult {
+    /**
+     * 数据库中有章节的图书数
+     */
+    private long checkedDocs;
+
+    /**
+     * 章节数或校验值不一致的图书数
+     */
+    private long mismatchedDocs;
+
+    /**
+     * 数据库中有章节但ES中没有的图书数
+     */
+    private long missingDocs;
+
+    /**
+     * ES中有章节但数据库中没有的图书数
+     */
+    private long extraDocs;
+
+    /**
+     * 本次提交同步的图书数，超过上限的留到下次核对
+     */
+    private long repairedDocs;
+
+    /**
+     * 耗时（毫秒）
+     */
+    private long elapsedMs;
+}
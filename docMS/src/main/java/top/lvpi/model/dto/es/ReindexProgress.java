@@ -0,0 +1,54 @@
+package top.lvpi.model.dto.es;
+
+import lombok.Data;
+
+/**
+ * 全量重建索引的进度快照
+ */
+@Data
+public class ReindexProgress {
+    /**
+     * 开始时统计的章节总数
+     */
+    private long totalSections;
+
+    /**
+     * 已提交的章节数
+     */
+    private long submittedSections;
+
+    /**
+     * 已提交章节正文的字节数（UTF-8）
+     */
+    private long submittedBytes;
+
+    /**
+     * 分片数
+     */
+    private int slices;
+
+    /**
+     * 已读完的分片数
+     */
+    private int completedSlices;
+
+    /**
+     * 已用时间（毫秒）
+     */
+    private long elapsedMs;
+
+    /**
+     * 每秒提交的章节数
+     */
+    private double docsPerSecond;
+
+    /**
+     * 每秒提交的正文MB数
+     */
+    private double mbPerSecond;
+
+    /**
+     * 按当前速度估计的剩余时间（秒），尚无速度时为null
+     */
+    private Long etaSeconds;
+}
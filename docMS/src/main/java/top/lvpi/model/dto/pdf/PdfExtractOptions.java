@@ -0,0 +1,20 @@
+package top.lvpi.model.dto.pdf;
+
+import lombok.Data;
+import top.lvpi.utils.CancellationToken;
+
+/**
+ * 单次文本提取任务的选项
+ */
+@Data
+public class PdfExtractOptions {
+    /**
+     * PDF加载方式，为null时使用配置的默认方式
+     */
+    private PdfLoadMode loadMode;
+
+    /**
+     * 取消标记，为null时不可取消
+     */
+    private CancellationToken cancellationToken;
+}
@@ -0,0 +1,47 @@
+package top.lvpi.model.dto.pdf;
+
+import lombok.Data;
+import top.lvpi.model.entity.DocSection;
+
+import java.util.List;
+
+/**
+ * PDF单次加载的解析结果：页数、分页章节与封面
+ */
+@Data
+public class PdfIngestResult {
+    /**
+     * PDF总页数
+     */
+    private int pageCount;
+
+    /**
+     * 按页码排序的章节列表，流式写入时为null
+     */
+    private List<DocSection> sections;
+
+    /**
+     * 提取出的章节数
+     */
+    private int sectionCount;
+
+    /**
+     * 本次处理的页数，断点续提时不含检查点之前的页
+     */
+    private int processedPageCount;
+
+    /**
+     * 本次处理的页中没有文本层的纯图片页数
+     */
+    private int imageOnlyPageCount;
+
+    /**
+     * 超过单页时限被放弃的页码
+     */
+    private List<Integer> failedPages;
+
+    /**
+     * 首页封面Base64图片，未请求封面时为null
+     */
+    private String coverImage;
+}
@@ -0,0 +1,33 @@
+package top.lvpi.model.dto.pdf;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * PDF加载方式
+ */
+public enum PdfLoadMode {
+    /**
+     * 整个文件读入堆内存，适合普通大小的PDF
+     */
+    MEMORY,
+
+    /**
+     * 文件落盘后按需读取，PDFBox内部结构优先使用限定大小的堆内存，超出部分写临时文件
+     */
+    MIXED,
+
+    /**
+     * 文件落盘后按需读取，PDFBox内部结构只使用临时文件，堆占用与PDF大小无关
+     */
+    TEMP_FILE;
+
+    /**
+     * 解析加载方式，忽略大小写与中划线，为空时返回null
+     */
+    public static PdfLoadMode fromValue(String value) {
+        if (StringUtils.isBlank(value)) {
+            return null;
+        }
+        return PdfLoadMode.valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
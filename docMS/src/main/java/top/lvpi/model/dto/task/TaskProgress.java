@@ -35,4 +35,29 @@ public class TaskProgress {
      * 错误信息
      */
     private String errorMessage;
+
+    /**
+     * 已处理的条数，不按条数统计的任务为null
+     */
+    private Long processed;
+
+    /**
+     * 总条数，不按条数统计的任务为null
+     */
+    private Long total;
+
+    /**
+     * 每秒处理的条数
+     */
+    private Double docsPerSecond;
+
+    /**
+     * 每秒处理的MB数
+     */
+    private Double mbPerSecond;
+
+    /**
+     * 预计剩余时间（秒）
+     */
+    private Long etaSeconds;
 } 
\ No newline at end of file
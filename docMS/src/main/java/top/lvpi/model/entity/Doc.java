@@ -103,6 +103,18 @@ public class Doc {
     @TableField("is_extracted")
     private Integer isExtracted;
 
+    @Schema(description = "已完成文本提取的最后页码")
+    @TableField("extracted_page")
+    private Integer extractedPage;
+
+    @Schema(description = "没有文本层的扫描页占比")
+    @TableField("scanned_ratio")
+    private Double scannedRatio;
+
+    @Schema(description = "超过单页时限未能提取的页码，逗号分隔")
+    @TableField("failed_pages")
+    private String failedPages;
+
     @Schema(description = "是否已经导入elasticsearch")
     @TableField("is_indexed")
     private Integer isIndexed;
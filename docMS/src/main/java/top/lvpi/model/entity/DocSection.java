@@ -30,6 +30,11 @@ public class DocSection {
     @Schema(description = "章节内容", name = "sectionText", type = "String")
     private String content;
 
+    // 页码与内容的校验值，写入时由DocSectionService计算，见SectionChecksum.contentHash
+    @TableField(value = "content_hash")
+    @Schema(description = "内容校验值", name = "contentHash", type = "Long")
+    private Long contentHash;
+
     //创建时间
     @TableField(value = "create_time", fill = FieldFill.INSERT)
     @Schema(description = "创建时间", name = "createTime", type = "Date")
@@ -0,0 +1,58 @@
+package top.lvpi.model.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.Date;
+
+@Schema(name = "LpEsOutbox", description = "ES同步发件箱")
+@Data
+@TableName("lp_es_outbox")
+public class EsOutbox {
+
+    public static final String TYPE_SECTION = "SECTION";
+
+    public static final String TYPE_DOC = "DOC";
+
+    public static final String OP_UPSERT = "UPSERT";
+
+    public static final String OP_DELETE = "DELETE";
+
+    /**
+     * 只更新图书信息与主题，仅用于图书
+     */
+    public static final String OP_METADATA = "METADATA";
+
+    @TableId(value = "id", type = IdType.AUTO)
+    @Schema(description = "自增主键")
+    private Long id;
+
+    @Schema(description = "实体类型：SECTION/DOC")
+    @TableField("entity_type")
+    private String entityType;
+
+    @Schema(description = "章节ID或图书ID")
+    @TableField("entity_id")
+    private Long entityId;
+
+    @Schema(description = "操作：UPSERT/DELETE/METADATA")
+    @TableField("op")
+    private String op;
+
+    @Schema(description = "已失败次数")
+    @TableField("attempts")
+    private Integer attempts;
+
+    @Schema(description = "最近一次失败原因")
+    @TableField("last_error")
+    private String lastError;
+
+    @Schema(description = "最早处理时间")
+    @TableField("next_retry_time")
+    private Date nextRetryTime;
+
+    @Schema(description = "创建时间")
+    @TableField("create_time")
+    private Date createTime;
+}
@@ -9,7 +9,7 @@ import org.springframework.data.elasticsearch.annotations.FieldType;
 import java.util.Date;
 
 @Data
-@Document(indexName = "books")
+@Document(indexName = "books", createIndex = false)
 public class DocSectionDocument {
     @Id
     private String id;
@@ -50,6 +50,12 @@ public class DocSectionDocument {
     @Field(name = "section_text", type = FieldType.Text, analyzer = "ik_max_word")
     private String sectionText;
 
+    /**
+     * 章节校验值，由章节ID与数据库中的内容校验值计算，见SectionChecksum
+     */
+    @Field(name = "content_hash", type = FieldType.Long, index = false)
+    private Long contentHash;
+
     @Field(type = FieldType.Nested)
     private TopicLevel topicLevels;
 
@@ -1,9 +1,16 @@
 package top.lvpi.service;
 
+import top.lvpi.model.dto.es.BulkIndexResult;
+import top.lvpi.model.dto.es.CursorPage;
+import top.lvpi.model.dto.es.ReindexProgress;
 import top.lvpi.model.es.DocSectionDocument;
+import top.lvpi.utils.CancellationToken;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
+import java.util.function.Consumer;
+
 public interface DocSectionEsService {
     
     void importById(String id);
@@ -34,10 +41,74 @@ public interface DocSectionEsService {
      */
     Page<DocSectionDocument> search(String keyword, String isbn, String docId,String docTitle,
             String author, String publisher, Integer pageNum, Pageable pageable);
-    
+
+    /**
+     * 游标翻页搜索章节，在首页打开的时间点上用search_after续读，每页开销不随翻页深度增长
+     *
+     * @param cursor 上一页返回的游标，为空时从第一页开始，其余条件须与首页一致
+     * @param size   每页记录数
+     * @return 当前页与下一页的游标，最后一页时游标为null且时间点已释放
+     */
+    CursorPage<DocSectionDocument> searchAfter(String keyword, String isbn, String docId, String docTitle,
+            String author, String publisher, Integer pageNum, String cursor, int size);
+
+    /**
+     * 提前释放游标占用的时间点，未读到最后一页就放弃时调用
+     *
+     * @param cursor 游标
+     */
+    void closeCursor(String cursor);
+
     /**
      * 导入图书章节到ES
+     * 按章节校验值与索引比对，只提交新增或内容有变化的章节，并删除索引中该图书已不存在的章节；
+     * 部分失败后再次导入时已成功的章节会被跳过
+     * @param docId 图书ID
+     * @return 批量索引结果，包含逐条的失败信息与未变化的章节数
+     */
+    BulkIndexResult importDocSections(Long docId);
+
+    /**
+     * 按importDocSections增量同步一本图书的章节，全部成功时将图书标记为已索引
+     * @param docId 图书ID
+     * @return 批量索引结果，有失败时不修改索引状态
+     */
+    BulkIndexResult reindexDoc(Long docId);
+
+    /**
+     * 流式重建全部章节的索引
+     * 按章节数把图书ID划分为若干连续分片，各分片由独立线程按图书ID、页码顺序逐行读取，
+     * 共用重建专用的批量索引器写入新版本索引，内存占用与章节总数无关；
+     * 完成后原子切换读写别名，重建期间查询不受影响，取消或任一分片失败时保留原索引。
+     * 快照只在文档不存在时写入，重建期间增量写入过的章节与图书在切换前按数据库当前状态重新同步。
+     * 读取过程中会按图书查询数据库，不能在事务中调用
+     * @param slices 分片数，小于等于0时使用配置的默认值
+     * @param cancellationToken 取消标记，取消后放弃新索引，可为null
+     * @param progress 进度回调，会在多个分片线程中调用，可为null
+     * @return 批量索引结果
+     */
+    BulkIndexResult reindexAll(int slices, CancellationToken cancellationToken, Consumer<ReindexProgress> progress);
+
+    /**
+     * 全量重建允许的最大分片数
+     * 每个分片读取期间占用两个数据库连接：一个保持流式结果集，一个按图书查询图书信息与主题，
+     * 因此按连接池大小扣除为其他请求保留的连接后除以2计算
+     */
+    int getMaxReindexSlices();
+
+    /**
+     * 按数据库中的当前状态同步指定章节的索引
+     * 章节及其图书存在且未删除时写入最新内容，否则删除对应文档；结果只取决于数据库状态，可重复执行
+     * @param sectionIds 章节ID
+     * @return 批量索引结果，失败记录的ID为章节ID
+     */
+    BulkIndexResult syncSections(Collection<Long> sectionIds);
+
+    /**
+     * 图书信息或主题变化后，只更新该图书全部章节文档中冗余的图书信息与主题字段
+     * 通过一次update_by_query在ES端改写，不重新发送章节正文
      * @param docId 图书ID
+     * @return 更新的章节文档数
      */
-    void importDocSections(Long docId);
-} 
\ No newline at end of file
+    long updateDocMetadata(Long docId);
+}
@@ -18,7 +18,7 @@ public interface DocSectionService extends IService<DocSection> {
     IPage<DocSection> page(Integer current, Integer size, Long docId,Integer pageNum, String title, String content);
     
     /**
-     * 更新图书章节并同步更新ES索引
+     * 更新图书章节，ES索引由发件箱异步同步
      *
      * @param docSection 图书章节信息
      * @return 是否更新成功
@@ -26,10 +26,36 @@ public interface DocSectionService extends IService<DocSection> {
     boolean updateWithEs(DocSection docSection);
 
     /**
-     * 根据secionId删除图书章节并删除对应的ES索引
+     * 根据secionId删除图书章节，对应的ES索引由发件箱异步删除
      *
      * @param docSectionId 图书章节信息
      * @return 是否更新成功
      */
     boolean deleteWithEs(Long docSectionId);
+
+    /**
+     * 查找与指定文件内容相同（存储名或MD5相同）且已提取文本的其他图书
+     *
+     * @param fileName     文件存储名称
+     * @param excludeDocId 需要排除的图书ID
+     * @return 图书ID，不存在时返回null
+     */
+    Long findExtractedDocIdBySameFile(String fileName, Long excludeDocId);
+
+    /**
+     * 将源图书的章节整体复制到目标图书
+     *
+     * @param sourceDocId 源图书ID
+     * @param targetDocId 目标图书ID
+     * @param title       目标图书名称
+     * @return 复制的章节数
+     */
+    int copySections(Long sourceDocId, Long targetDocId, String title);
+
+    /**
+     * 分批补齐缺少content_hash的历史章节，从上次处理到的主键继续（重启后从第一个缺少content_hash的章节开始），每批一条语句单独提交，批间停顿，单次批数有上限
+     *
+     * @return 本次补齐的章节数
+     */
+    int backfillContentHash();
 } 
\ No newline at end of file
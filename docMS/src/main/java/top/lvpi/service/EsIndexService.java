@@ -0,0 +1,61 @@
+package top.lvpi.service;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 章节索引的版本管理
+ * 物理索引按版本命名（{别名}_v{N}），查询走读别名，增量写入走写别名，两者平时指向同一个物理索引。
+ * 重建时在新版本索引中写入全部数据，完成后在一次别名操作中同时切换读写别名，查询不会中断
+ */
+public interface EsIndexService {
+
+    /**
+     * 启动时确保读写别名存在：没有索引时创建第一个版本，已有的旧版具体索引补上写别名
+     */
+    void initialize() throws IOException;
+
+    /**
+     * 查询使用的读别名
+     */
+    String getReadAlias();
+
+    /**
+     * 增量写入的目标：写别名，重建期间再加上正在重建的新索引，保证切换后不丢失重建期间的写入
+     */
+    List<String> getWriteTargets();
+
+    /**
+     * 索引或别名指向的物理索引是否按图书ID路由（映射中_routing.required为true）
+     * 按路由写入的索引中，同一本图书的章节位于同一个分片；旧版未按路由写入的索引不能带路由读写，否则会找不到文档或产生重复
+     *
+     * @param target 索引名或别名
+     */
+    boolean isRouted(String target);
+
+    /**
+     * 是否正在重建索引
+     */
+    boolean isRebuilding();
+
+    /**
+     * 创建下一个版本的索引用于重建，写入期间关闭刷新、副本数为0
+     *
+     * @return 新索引名
+     */
+    String beginRebuild() throws IOException;
+
+    /**
+     * 恢复新索引的刷新间隔与副本数，段合并后原子切换读写别名，按配置删除旧索引
+     *
+     * @param index beginRebuild返回的索引名
+     */
+    void completeRebuild(String index) throws IOException;
+
+    /**
+     * 放弃重建并删除新索引，读写别名保持不变
+     *
+     * @param index beginRebuild返回的索引名
+     */
+    void abortRebuild(String index);
+}
@@ -0,0 +1,24 @@
+package top.lvpi.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import top.lvpi.model.entity.EsOutbox;
+
+public interface EsOutboxService extends IService<EsOutbox> {
+
+    /**
+     * 记录一条待同步到ES的变更，必须在修改业务数据的事务中调用，与业务数据一同提交或回滚
+     *
+     * @param entityType 实体类型，EsOutbox.TYPE_SECTION或EsOutbox.TYPE_DOC
+     * @param entityId   章节ID或图书ID
+     * @param op         操作，EsOutbox.OP_UPSERT、EsOutbox.OP_DELETE或EsOutbox.OP_METADATA
+     */
+    void enqueue(String entityType, Long entityId, String op);
+
+    /**
+     * 取出一批已到处理时间的记录同步到ES
+     * 同一实体的多条记录合并为一次同步；成功后删除记录，失败的记录按失败次数推迟后重试，保证至少同步一次
+     *
+     * @return 本批处理的记录数
+     */
+    int relay();
+}
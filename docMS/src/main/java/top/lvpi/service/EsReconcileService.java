@@ -0,0 +1,17 @@
+package top.lvpi.service;
+
+import top.lvpi.model.dto.es.ReconcileResult;
+
+/**
+ * 数据库与ES章节索引的一致性核对
+ */
+public interface EsReconcileService {
+
+    /**
+     * 逐本比对数据库与ES中的章节数和校验值之和，不一致的图书写入发件箱由后台任务重新同步；
+     * 一致但未标记为已索引的图书补上标记。重建索引期间跳过
+     *
+     * @return 核对结果，已有核对在进行或正在重建索引时返回null
+     */
+    ReconcileResult reconcile();
+}
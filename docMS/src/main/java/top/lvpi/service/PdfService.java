@@ -1,5 +1,7 @@
 package top.lvpi.service;
 
+import top.lvpi.model.dto.pdf.PdfExtractOptions;
+
 public interface PdfService {
     /**
      * 提取PDF文本并保存到数据库
@@ -8,4 +10,13 @@ public interface PdfService {
      * @return 处理结果
      */
     String extractText(String filePath, Long docId, String title);
+
+    /**
+     * 按指定选项提取PDF文本并保存到数据库
+     * @param filePath PDF文件路径
+     * @param docId 书籍ID
+     * @param options 加载方式、取消标记等选项，可为null
+     * @return 处理结果
+     */
+    String extractText(String filePath, Long docId, String title, PdfExtractOptions options);
 } 
\ No newline at end of file
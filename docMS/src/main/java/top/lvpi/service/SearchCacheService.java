@@ -0,0 +1,41 @@
+package top.lvpi.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 检索结果缓存，分为进程内缓存与Redis共享缓存两级
+ * 缓存键由规范化后的查询条件与索引代数组成，索引有写入时代数加一，旧的缓存不再命中，随过期时间淘汰
+ */
+public interface SearchCacheService {
+
+    /**
+     * 依次查找进程内缓存与Redis，都未命中时执行查询并写入两级缓存；缓存不可用时直接执行查询。
+     * 执行查询前合并并发的相同查询，同时到达的相同条件只查询一次，所有调用方得到同一个结果
+     *
+     * @param namespace 查询类型，不同类型的相同条件互不命中
+     * @param query     查询条件，值为null或空白的条件被忽略；只有keyword去掉首尾空白并合并连续空白，其余字符串按原样比较
+     * @param type      结果类型，用于从Redis反序列化
+     * @param loader    实际执行查询，返回null时不缓存
+     * @return 查询结果
+     */
+    default <T> T get(String namespace, Map<String, ?> query, TypeReference<T> type, Supplier<T> loader) {
+        return get(namespace, query, type, loader, value -> true);
+    }
+
+    /**
+     * 同get，只有cacheable判定为true的结果才写入缓存，用于部分失败或超时的结果
+     *
+     * @param cacheable 判断查询结果能否缓存
+     */
+    <T> T get(String namespace, Map<String, ?> query, TypeReference<T> type, Supplier<T> loader,
+              Predicate<T> cacheable);
+
+    /**
+     * 索引写入后调用，使所有实例上的检索缓存失效
+     */
+    void invalidate();
+}
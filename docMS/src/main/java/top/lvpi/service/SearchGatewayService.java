@@ -0,0 +1,18 @@
+package top.lvpi.service;
+
+/**
+ * 全文检索网关，代替nginx的/es/直连代理，供前端Searchkit使用
+ * 校验并改写instantsearch发出的_msearch请求，限制返回条数、聚合数量与高亮片段长度，
+ * 相同请求由检索缓存返回，其余通过ES客户端的连接池转发
+ */
+public interface SearchGatewayService {
+
+    /**
+     * 执行一组检索
+     *
+     * @param index 路径中的索引名，可为null，此时以各检索头中的index为准
+     * @param body  NDJSON格式的请求体，每条检索由检索头与检索体两行组成
+     * @return ES原样返回的_msearch响应
+     */
+    String msearch(String index, String body);
+}
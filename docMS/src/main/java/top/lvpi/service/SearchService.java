@@ -1,5 +1,7 @@
 package top.lvpi.service;
 
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import top.lvpi.model.dto.es.CursorPage;
 import top.lvpi.model.entity.Doc;
 
 import java.util.List;
@@ -16,46 +18,42 @@ public interface SearchService {
     void deleteIndex(Integer id);
 
     /**
-     * 基础搜索
+     * 基础搜索，一次请求返回当前页与命中总数
      */
-    List<Doc> searchDocs(String keyword, int page, int size);
+    IPage<Doc> searchDocs(String keyword, int page, int size);
 
     /**
-     * 基础搜索计数
+     * 高级搜索，一次请求返回当前页与命中总数
      */
-    long countSearch(String keyword);
+    IPage<Doc> advancedSearch(String keyword, String category, String author,
+                              Integer yearFrom, Integer yearTo, int page, int size);
 
     /**
-     * 高级搜索
+     * 基础搜索的游标翻页，在首页打开的时间点上用search_after续读，每页开销不随翻页深度增长
+     *
+     * @param cursor 上一页返回的游标，为空时从第一页开始
+     * @return 当前页与下一页的游标，最后一页时游标为null
      */
-    List<Doc> advancedSearch(String keyword, String category, String author,
-                             Integer yearFrom, Integer yearTo, int page, int size);
+    CursorPage<Doc> searchDocsAfter(String keyword, String cursor, int size);
 
     /**
-     * 高级搜索计数
+     * 高级搜索的游标翻页，条件须与首页一致
+     *
+     * @param cursor 上一页返回的游标，为空时从第一页开始
+     * @return 当前页与下一页的游标，最后一页时游标为null
      */
-    long countAdvancedSearch(String keyword, String category, String author, 
-                           Integer yearFrom, Integer yearTo);
+    CursorPage<Doc> advancedSearchAfter(String keyword, String category, String author,
+                                        Integer yearFrom, Integer yearTo, String cursor, int size);
 
     /**
-     * 模板搜索
+     * 模板搜索，一次请求返回当前页与命中总数
      */
-    List<Doc> templateSearch(String field, String value, int page, int size);
+    IPage<Doc> templateSearch(String field, String value, int page, int size);
 
     /**
-     * 模板搜索计数
+     * 嵌套搜索，一次请求返回当前页与命中总数
      */
-    long countTemplateSearch(String field, String value);
-
-    /**
-     * 嵌套搜索
-     */
-    List<Doc> nestedSearch(String keyword, Integer maxYear, int page, int size);
-
-    /**
-     * 嵌套搜索计数
-     */
-    long countNestedSearch(String keyword, Integer maxYear);
+    IPage<Doc> nestedSearch(String keyword, Integer maxYear, int page, int size);
 
     /**
      * 批量索引图书
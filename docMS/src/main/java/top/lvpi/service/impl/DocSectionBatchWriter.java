@@ -0,0 +1,117 @@
+package top.lvpi.service.impl;
+
+import org.springframework.transaction.support.TransactionTemplate;
+import top.lvpi.model.entity.DocSection;
+import top.lvpi.service.DocSectionService;
+import top.lvpi.utils.PDFUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * 图书章节批量写入器
+ * 缓存提取出的章节，每完成checkpointPages页就在一个事务中通过JDBC批处理写入章节并记录检查点，
+ * 配合数据源的rewriteBatchedStatements=true会被驱动改写为多行INSERT。
+ * 中断后已提交的页不会回滚，重新提取时从检查点之后继续。
+ * 超时放弃的页随检查点一起记录，重新提取时只需重试这些页
+ */
+public class DocSectionBatchWriter implements PDFUtils.SectionSink {
+
+    private final DocSectionService docSectionService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+
+    private final int checkpointPages;
+
+    /**
+     * 在写入章节的同一事务中记录已完成的最后页码与失败页
+     */
+    private final CheckpointRecorder checkpointRecorder;
+
+    private final List<DocSection> buffer = new ArrayList<>();
+
+    /**
+     * 至今仍未能提取的页码
+     */
+    private final TreeSet<Integer> failedPages = new TreeSet<>();
+
+    /**
+     * 最近一次检查点的页码
+     */
+    private int checkpointPage;
+
+    /**
+     * 已写入数据库的章节数
+     */
+    private int written;
+
+    public DocSectionBatchWriter(DocSectionService docSectionService, TransactionTemplate transactionTemplate,
+                                 int batchSize, int checkpointPages, int checkpointPage,
+                                 CheckpointRecorder checkpointRecorder) {
+        this.docSectionService = docSectionService;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = Math.max(1, batchSize);
+        this.checkpointPages = Math.max(1, checkpointPages);
+        this.checkpointPage = checkpointPage;
+        this.checkpointRecorder = checkpointRecorder;
+    }
+
+    @Override
+    public void accept(DocSection section) {
+        buffer.add(section);
+    }
+
+    @Override
+    public void pagesFailed(List<Integer> pages) {
+        failedPages.addAll(pages);
+    }
+
+    @Override
+    public void pagesCompleted(int lastPage) {
+        if (lastPage - checkpointPage >= checkpointPages) {
+            transactionTemplate.executeWithoutResult(status -> {
+                flush();
+                checkpointRecorder.record(lastPage, getFailedPages());
+            });
+            checkpointPage = lastPage;
+        }
+    }
+
+    /**
+     * 写入缓存中剩余的章节，需在调用方的事务中执行
+     */
+    public void flush() {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        docSectionService.saveBatch(buffer, batchSize);
+        written += buffer.size();
+        buffer.clear();
+    }
+
+    public int getWritten() {
+        return written;
+    }
+
+    /**
+     * 至今仍未能提取的页码，升序
+     */
+    public List<Integer> getFailedPages() {
+        return new ArrayList<>(failedPages);
+    }
+
+    /**
+     * 检查点记录
+     */
+    @FunctionalInterface
+    public interface CheckpointRecorder {
+        /**
+         * @param lastPage    已完成的最后页码
+         * @param failedPages 至今仍未能提取的页码
+         */
+        void record(int lastPage, List<Integer> failedPages);
+    }
+}
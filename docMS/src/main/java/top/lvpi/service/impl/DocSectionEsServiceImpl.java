@@ -6,46 +6,94 @@ import top.lvpi.common.BusinessException;
 import top.lvpi.common.ErrorCode;
 import top.lvpi.mapper.DocMapper;
 import top.lvpi.mapper.DocSectionMapper;
+import top.lvpi.model.dto.es.BulkIndexResult;
+import top.lvpi.model.dto.es.CachedPage;
+import top.lvpi.model.dto.es.CursorPage;
+import top.lvpi.model.dto.es.DocSectionCount;
+import top.lvpi.model.dto.es.ReindexProgress;
 import top.lvpi.model.dto.topic.TopicPathDTO;
 import top.lvpi.model.entity.Doc;
 import top.lvpi.model.entity.DocSection;
 import top.lvpi.model.entity.Topic;
 import top.lvpi.model.es.DocSectionDocument;
 import top.lvpi.model.es.TopicLevel;
-import top.lvpi.repository.es.DocSectionRepository;
 import top.lvpi.service.DocSectionEsService;
+import top.lvpi.service.EsIndexService;
+import top.lvpi.service.SearchCacheService;
 import top.lvpi.service.TopicService;
+import top.lvpi.utils.CancellationToken;
+import top.lvpi.utils.EsBulkIndexer;
+import top.lvpi.utils.SearchCursor;
+import top.lvpi.utils.SectionChecksum;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.zaxxer.hikari.HikariDataSource;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.UncategorizedElasticsearchException;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
 import org.springframework.data.elasticsearch.core.SearchHit;
 import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.convert.ElasticsearchConverter;
 import org.springframework.data.elasticsearch.core.query.Criteria;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
 import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
+import org.springframework.data.elasticsearch.core.query.Query;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Conflicts;
 import co.elastic.clients.elasticsearch.core.DeleteByQueryResponse;
+import co.elastic.clients.elasticsearch.core.ScrollResponse;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.UpdateByQueryResponse;
+import co.elastic.clients.json.JsonData;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObject;
+
+import javax.sql.DataSource;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Duration;
 
 @Service
 @Slf4j
 public class DocSectionEsServiceImpl implements DocSectionEsService {
 
-    @Autowired
-    private DocSectionRepository docSectionRepository;
-
     @Autowired
     private DocSectionMapper docSectionMapper;
 
@@ -64,6 +112,84 @@ public class DocSectionEsServiceImpl implements DocSectionEsService {
     @Autowired
     private TopicService topicService;
 
+    @Autowired
+    private EsBulkIndexer esBulkIndexer;
+
+    @Autowired
+    @Qualifier("rebuildBulkIndexer")
+    private EsBulkIndexer rebuildBulkIndexer;
+
+    @Autowired
+    private EsIndexService esIndexService;
+
+    @Autowired
+    private SearchCacheService searchCacheService;
+
+    /**
+     * 重建索引时所有分片每共提交多少条章节回调一次进度
+     */
+    private static final int PROGRESS_INTERVAL = 1000;
+
+    /**
+     * 重建索引允许的章节失败比例，超过时放弃新索引，不切换别名
+     */
+    @Value("${es.index.max-failure-ratio:0.001}")
+    private double maxFailureRatio;
+
+    /**
+     * 全量重建的默认分片数
+     */
+    @Value("${es.rebuild.slices:4}")
+    private int defaultSlices;
+
+    /**
+     * 全量重建期间为其他请求保留的数据库连接数
+     */
+    @Value("${es.rebuild.reserved-connections:4}")
+    private int reservedConnections;
+
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * 命中总数精确统计的上限，与分页结果在同一次请求中返回
+     */
+    @Value("${es.search.track-total-hits-up-to:10000}")
+    private int trackTotalHitsUpTo;
+
+    /**
+     * 游标翻页时两次请求之间时间点的保持时间（秒）
+     */
+    @Value("${es.search.cursor-keep-alive-seconds:120}")
+    private long cursorKeepAliveSeconds;
+
+    /**
+     * 只改写章节文档中的图书信息字段，正文不经过网络传输
+     */
+    private static final String UPDATE_METADATA_SCRIPT =
+        "for (def entry : params.fields.entrySet()) { ctx._source[entry.getKey()] = entry.getValue(); }";
+
+    private static final TypeReference<CachedPage<DocSectionDocument>> SECTION_PAGE_TYPE =
+        new TypeReference<CachedPage<DocSectionDocument>>() {
+        };
+
+    /**
+     * 批量更新图书索引状态时每条SQL包含的ID数
+     */
+    private static final int UPDATE_BATCH_SIZE = 1000;
+
+    /**
+     * 读取一本图书已索引章节的校验值时每页的文档数
+     */
+    private static final int SCROLL_SIZE = 2000;
+
+    private static final String SCROLL_KEEP_ALIVE = "1m";
+
+    /**
+     * 正在进行的全量重建记录的增量写入，没有重建时为null
+     */
+    private final AtomicReference<RebuildJournal> rebuildJournal = new AtomicReference<>();
+
     @Override
     public void importById(String id) {
         // 实现导入单个文档的逻辑
@@ -86,7 +212,7 @@ public class DocSectionEsServiceImpl implements DocSectionEsService {
         }
 
         // 导入图书章节
-        importDocSections(doc.getId());
+        checkIndexResult(importDocSections(doc.getId()));
 
         // 更新图书的索引状态
         LambdaUpdateWrapper<Doc> updateWrapper = new LambdaUpdateWrapper<>();
@@ -111,7 +237,7 @@ public class DocSectionEsServiceImpl implements DocSectionEsService {
         }
 
         // 导入图书章节
-        importDocSections(docId);
+        checkIndexResult(importDocSections(docId));
 
         // 更新图书的索引状态
         LambdaUpdateWrapper<Doc> updateWrapper = new LambdaUpdateWrapper<>();
@@ -130,12 +256,39 @@ public class DocSectionEsServiceImpl implements DocSectionEsService {
         if (document.getVersion() == null) {
             document.setVersion("1");
         }
-        return docSectionRepository.save(document);
+        // 写入写别名，索引重建期间同时写入新索引
+        recordSection(document.getId());
+        Object source = elasticsearchOperations.getElasticsearchConverter().mapObject(document);
+        for (String target : esIndexService.getWriteTargets()) {
+            try {
+                esClient.index(i -> i
+                    .index(target)
+                    .id(document.getId())
+                    .routing(routing(target, document.getDocId()))
+                    .document(source));
+            } catch (IOException e) {
+                log.error("保存章节{}的索引失败", document.getId(), e);
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "保存章节索引失败：" + e.getMessage());
+            }
+        }
+        searchCacheService.invalidate();
+        return document;
     }
 
     @Override
     public void deleteById(String id) {
-        docSectionRepository.deleteById(id);
+        // 只有章节ID时不知道路由，按ID查询删除，会访问全部分片
+        recordSection(id);
+        try {
+            esClient.deleteByQuery(d -> d
+                .index(esIndexService.getWriteTargets())
+                .query(q -> q.ids(i -> i.values(id)))
+                .conflicts(Conflicts.Proceed));
+        } catch (IOException e) {
+            log.error("删除章节{}的索引失败", id, e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "删除章节索引失败：" + e.getMessage());
+        }
+        searchCacheService.invalidate();
     }
 
     @Override
@@ -143,7 +296,7 @@ public class DocSectionEsServiceImpl implements DocSectionEsService {
         try {
             // 删除ES中的索引
             DeleteByQueryResponse response = esClient.deleteByQuery(d -> d
-                .index("docs")
+                .index(esIndexService.getWriteTargets())
                 .query(q -> q
                     .match(m -> m
                         .field("isbn")
@@ -154,6 +307,7 @@ public class DocSectionEsServiceImpl implements DocSectionEsService {
             );
             
             log.info("删除索引成功，删除文档数：{}", response.deleted());
+            searchCacheService.invalidate();
             
             // 更新doc表的is_indexed字段为0
             LambdaUpdateWrapper<Doc> updateWrapper = new LambdaUpdateWrapper<>();
@@ -171,10 +325,13 @@ public class DocSectionEsServiceImpl implements DocSectionEsService {
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void deleteByDocId(String docId) {
+        recordDoc(docId);
         try {
             // 1. 删除ES中的索引
+            List<String> targets = esIndexService.getWriteTargets();
             DeleteByQueryResponse response = esClient.deleteByQuery(d -> d
-                .index("docs")
+                .index(targets)
+                .routing(routing(targets, docId))
                 .query(q -> q
                     .match(m -> m
                         .field("book_id")
@@ -185,6 +342,7 @@ public class DocSectionEsServiceImpl implements DocSectionEsService {
             );
             
             log.info("删除索引成功，删除文档数：{}", response.deleted());
+            searchCacheService.invalidate();
 
             // 2. 更新doc表的is_indexed字段为0
             LambdaUpdateWrapper<Doc> updateWrapper = new LambdaUpdateWrapper<>();
@@ -202,6 +360,147 @@ public class DocSectionEsServiceImpl implements DocSectionEsService {
     @Override
     public Page<DocSectionDocument> search(String keyword, String isbn, String docId, String docTitle,
             String author, String publisher, Integer pageNum, Pageable pageable) {
+        Map<String, Object> query = new LinkedHashMap<>();
+        query.put("keyword", keyword);
+        query.put("isbn", isbn);
+        query.put("docId", docId);
+        query.put("docTitle", docTitle);
+        query.put("author", author);
+        query.put("publisher", publisher);
+        query.put("pageNum", pageNum);
+        query.put("page", pageable.getPageNumber());
+        query.put("size", pageable.getPageSize());
+        query.put("sort", pageable.getSort().toString());
+        CachedPage<DocSectionDocument> page = searchCacheService.get("sections", query, SECTION_PAGE_TYPE,
+                () -> doSearch(keyword, isbn, docId, docTitle, author, publisher, pageNum, pageable));
+        return new PageImpl<>(page.getContent(), pageable, page.getTotal());
+    }
+
+    private CachedPage<DocSectionDocument> doSearch(String keyword, String isbn, String docId, String docTitle,
+            String author, String publisher, Integer pageNum, Pageable pageable) {
+        Criteria criteria = buildCriteria(keyword, isbn, docId, docTitle, author, publisher, pageNum);
+
+        // 创建查询对象
+        CriteriaQuery query = new CriteriaQuery(criteria).setPageable(pageable);
+        query.setTrackTotalHitsUpTo(trackTotalHitsUpTo);
+        if (StringUtils.isNotBlank(docId)) {
+            // 书内查询：按路由只访问图书所在的分片
+            if (esIndexService.isRouted(esIndexService.getReadAlias())) {
+                query.setRoute(docId);
+            }
+            // 没有关键词时按页码顺序返回，与索引排序(book_id, page_num)一致，查询时不需要额外排序
+            if (StringUtils.isBlank(keyword) && pageable.getSort().isUnsorted()) {
+                query.addSort(Sort.by("docId", "pageNum"));
+            }
+        }
+
+        // 执行查询
+        SearchHits<DocSectionDocument> searchHits = elasticsearchOperations.search(query, DocSectionDocument.class);
+
+        // 转换结果
+        List<DocSectionDocument> content = searchHits.stream()
+                .map(SearchHit::getContent)
+                .collect(Collectors.toList());
+
+        // 返回分页结果
+        return new CachedPage<>(content, searchHits.getTotalHits());
+    }
+
+    @Override
+    public CursorPage<DocSectionDocument> searchAfter(String keyword, String isbn, String docId, String docTitle,
+            String author, String publisher, Integer pageNum, String cursor, int size) {
+        Map<String, Object> conditions = new LinkedHashMap<>();
+        conditions.put("keyword", keyword);
+        conditions.put("isbn", isbn);
+        conditions.put("docId", docId);
+        conditions.put("docTitle", docTitle);
+        conditions.put("author", author);
+        conditions.put("publisher", publisher);
+        conditions.put("pageNum", pageNum);
+        String fingerprint = SearchCursor.fingerprint(conditions);
+        SearchCursor state = StringUtils.isBlank(cursor) ? null : SearchCursor.decode(cursor, fingerprint);
+        Duration keepAlive = Duration.ofSeconds(cursorKeepAliveSeconds);
+
+        // 首页打开时间点，之后各页都在同一份索引快照上读取，翻页期间的写入不会造成重复或遗漏
+        String pitId = state == null
+                ? elasticsearchOperations.openPointInTime(IndexCoordinates.of(esIndexService.getReadAlias()), keepAlive)
+                : state.getPitId();
+        // 首页查询或解析失败时释放本次打开的时间点，否则它会在ES上保留到过期
+        boolean returned = false;
+        try {
+            CursorPage<DocSectionDocument> page = searchPage(pitId, keepAlive, state, fingerprint, keyword, isbn,
+                    docId, docTitle, author, publisher, pageNum, size);
+            returned = true;
+            return page;
+        } finally {
+            if (state == null && !returned) {
+                closePointInTime(pitId);
+            }
+        }
+    }
+
+    private CursorPage<DocSectionDocument> searchPage(String pitId, Duration keepAlive, SearchCursor state,
+            String fingerprint, String keyword, String isbn, String docId, String docTitle, String author,
+            String publisher, Integer pageNum, int size) {
+        CriteriaQuery query = new CriteriaQuery(buildCriteria(keyword, isbn, docId, docTitle, author, publisher, pageNum))
+                .setPageable(PageRequest.of(0, size));
+        // ES会在排序末尾自动追加_shard_doc，保证排序值唯一；带时间点的请求不能指定路由，书内查询按book_id过滤
+        if (StringUtils.isBlank(keyword) && StringUtils.isNotBlank(docId)) {
+            query.addSort(Sort.by("docId", "pageNum"));
+        } else {
+            query.addSort(Sort.by(Sort.Order.desc("_score")));
+        }
+        query.setPointInTime(new Query.PointInTime(pitId, keepAlive));
+        if (state == null) {
+            query.setTrackTotalHitsUpTo(trackTotalHitsUpTo);
+        } else {
+            // 时间点上的命中总数不变，沿用首页的统计
+            query.setTrackTotalHits(false);
+            query.setSearchAfter(state.getSearchAfter());
+        }
+
+        SearchHits<DocSectionDocument> searchHits;
+        try {
+            searchHits = elasticsearchOperations.search(query, DocSectionDocument.class);
+        } catch (UncategorizedElasticsearchException e) {
+            if (state != null && Integer.valueOf(404).equals(e.getStatusCode())) {
+                throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "翻页游标已过期，请重新检索");
+            }
+            throw e;
+        }
+
+        List<SearchHit<DocSectionDocument>> hits = searchHits.getSearchHits();
+        List<DocSectionDocument> content = hits.stream()
+                .map(SearchHit::getContent)
+                .collect(Collectors.toList());
+        long total = state == null ? searchHits.getTotalHits() : state.getTotal();
+        String latestPitId = searchHits.getPointInTimeId() != null ? searchHits.getPointInTimeId() : pitId;
+
+        if (hits.size() < size) {
+            closePointInTime(latestPitId);
+            return new CursorPage<>(content, total, null);
+        }
+        List<Object> sortValues = hits.get(hits.size() - 1).getSortValues();
+        String next = new SearchCursor(latestPitId, sortValues, total, fingerprint).encode();
+        return new CursorPage<>(content, total, next);
+    }
+
+    @Override
+    public void closeCursor(String cursor) {
+        closePointInTime(SearchCursor.pitIdOf(cursor));
+    }
+
+    private void closePointInTime(String pitId) {
+        try {
+            elasticsearchOperations.closePointInTime(pitId);
+        } catch (Exception e) {
+            // 未释放的时间点在保持时间到期后由ES回收
+            log.warn("释放时间点失败: {}", e.getMessage());
+        }
+    }
+
+    private Criteria buildCriteria(String keyword, String isbn, String docId, String docTitle,
+            String author, String publisher, Integer pageNum) {
         // 构建查询条件
         Criteria criteria = new Criteria();
 
@@ -238,75 +537,779 @@ public class DocSectionEsServiceImpl implements DocSectionEsService {
             criteria.and(new Criteria("page_num").is(pageNum.toString()));
         }
 
-        // 创建查询对象
-        CriteriaQuery query = new CriteriaQuery(criteria).setPageable(pageable);
+        return criteria;
+    }
 
-        // 执行查询
-        SearchHits<DocSectionDocument> searchHits = elasticsearchOperations.search(query, DocSectionDocument.class);
+    @Override
+    public BulkIndexResult importDocSections(Long docId) {
+        // 获取图书信息
+        Doc doc = docMapper.selectById(docId);
+        if (doc == null) {
+            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "图书不存在");
+        }
 
-        // 转换结果
-        List<DocSectionDocument> content = searchHits.stream()
-                .map(SearchHit::getContent)
+        recordDoc(docId.toString());
+        // 数据库一侧只读取章节ID与内容校验值，不读取正文
+        Map<String, Long> expected = new HashMap<>();
+        for (DocSection section : docSectionMapper.selectSectionHashes(docId)) {
+            expected.put(section.getId().toString(), SectionChecksum.of(section.getId(), section.getContentHash()));
+        }
+
+        // 重建期间新旧索引的内容可能不同，逐个写入目标比对
+        List<String> targets = esIndexService.getWriteTargets();
+        Map<String, Set<String>> upserts = new LinkedHashMap<>();
+        Map<String, Set<String>> deletes = new LinkedHashMap<>();
+        Set<Long> changedIds = new HashSet<>();
+        int skipped = 0;
+        for (String target : targets) {
+            Map<String, Long> indexed = loadIndexedChecksums(target, docId);
+            Set<String> changed = new HashSet<>();
+            for (Map.Entry<String, Long> entry : expected.entrySet()) {
+                if (entry.getValue().equals(indexed.remove(entry.getKey()))) {
+                    skipped++;
+                } else {
+                    changed.add(entry.getKey());
+                    changedIds.add(Long.valueOf(entry.getKey()));
+                }
+            }
+            upserts.put(target, changed);
+            // 剩下的是索引中有、数据库中已没有的章节
+            deletes.put(target, indexed.keySet());
+        }
+
+        EsBulkIndexer.Session session = esBulkIndexer.openSession();
+        if (!changedIds.isEmpty()) {
+            DocIndexMeta meta = loadDocIndexMeta(doc);
+            ElasticsearchConverter converter = elasticsearchOperations.getElasticsearchConverter();
+            for (List<Long> ids : partition(new ArrayList<>(changedIds))) {
+                for (DocSection section : docSectionMapper.selectBatchIds(ids)) {
+                    // 比对之后被删除的章节由发件箱同步
+                    if (Integer.valueOf(1).equals(section.getIsDeleted())) {
+                        continue;
+                    }
+                    DocSectionDocument document = toDocument(section, meta);
+                    Object source = converter.mapObject(document);
+                    for (String target : targets) {
+                        if (upserts.get(target).contains(document.getId())) {
+                            session.index(target, document.getId(), routing(target, document.getDocId()), source);
+                        }
+                    }
+                }
+            }
+        }
+        for (Map.Entry<String, Set<String>> entry : deletes.entrySet()) {
+            for (String id : entry.getValue()) {
+                session.delete(entry.getKey(), id, routing(entry.getKey(), docId.toString()));
+            }
+        }
+
+        BulkIndexResult result;
+        try {
+            result = session.await();
+        } catch (IOException e) {
+            log.error("图书ID：{}的章节索引未完成", docId, e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "章节索引未完成：" + e.getMessage());
+        }
+        result.setSkipped(skipped);
+        if (result.getTotal() > 0) {
+            searchCacheService.invalidate();
+        }
+        if (result.getFailed() > 0) {
+            log.warn("图书ID：{}的章节索引完成，成功{}条，失败{}条，未变化{}条，重试{}次，首条失败：{}", docId,
+                    result.getSucceeded(), result.getFailed(), skipped, result.getRetried(), result.getFailures().get(0));
+        } else {
+            log.info("图书ID：{}的章节索引完成，写入与删除共{}条，未变化{}条，重试{}次", docId, result.getTotal(), skipped,
+                    result.getRetried());
+        }
+        return result;
+    }
+
+    @Override
+    public BulkIndexResult reindexDoc(Long docId) {
+        BulkIndexResult result = importDocSections(docId);
+        if (result.getFailed() > 0) {
+            return result;
+        }
+
+        LambdaUpdateWrapper<Doc> updateWrapper = new LambdaUpdateWrapper<>();
+        updateWrapper.eq(Doc::getId, docId)
+                .set(Doc::getIsIndexed, 1);
+        docMapper.update(null, updateWrapper);
+        return result;
+    }
+
+    /**
+     * 读取写入目标中一本图书全部章节的ID与校验值，没有校验值的章节值为null
+     */
+    private Map<String, Long> loadIndexedChecksums(String target, Long docId) {
+        Map<String, Long> checksums = new HashMap<>();
+        String routing = routing(target, docId.toString());
+        String scrollId = null;
+        try {
+            SearchResponse<JsonData> response = esClient.search(s -> s
+                .index(target)
+                .routing(routing)
+                .size(SCROLL_SIZE)
+                .scroll(t -> t.time(SCROLL_KEEP_ALIVE))
+                .source(src -> src.filter(f -> f.includes("content_hash")))
+                .query(q -> q.term(t -> t.field("book_id").value(docId.toString()))), JsonData.class);
+            scrollId = response.scrollId();
+            List<Hit<JsonData>> hits = response.hits().hits();
+            while (!hits.isEmpty()) {
+                for (Hit<JsonData> hit : hits) {
+                    JsonObject source = hit.source() == null ? null : hit.source().toJson().asJsonObject();
+                    JsonNumber hash = source == null ? null : source.getJsonNumber("content_hash");
+                    checksums.put(hit.id(), hash == null ? null : hash.longValue());
+                }
+                if (hits.size() < SCROLL_SIZE) {
+                    break;
+                }
+                String currentScrollId = scrollId;
+                ScrollResponse<JsonData> next = esClient.scroll(s -> s
+                    .scrollId(currentScrollId)
+                    .scroll(t -> t.time(SCROLL_KEEP_ALIVE)), JsonData.class);
+                scrollId = next.scrollId();
+                hits = next.hits().hits();
+            }
+        } catch (IOException e) {
+            log.error("读取索引{}中图书ID：{}的章节校验值失败", target, docId, e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "读取章节索引失败：" + e.getMessage());
+        } finally {
+            clearScroll(scrollId);
+        }
+        return checksums;
+    }
+
+    private void clearScroll(String scrollId) {
+        if (scrollId == null) {
+            return;
+        }
+        try {
+            esClient.clearScroll(c -> c.scrollId(scrollId));
+        } catch (IOException e) {
+            // 过期后由ES自动释放
+            log.debug("释放scroll失败", e);
+        }
+    }
+
+    @Override
+    public BulkIndexResult reindexAll(int slices, CancellationToken cancellationToken, Consumer<ReindexProgress> progress) {
+        // 重建期间的增量写入可能早于快照中同一章节的写入，先记录下来，快照写完后按数据库当前状态重放
+        RebuildJournal journal = new RebuildJournal();
+        if (!rebuildJournal.compareAndSet(null, journal)) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "章节索引正在重建");
+        }
+        try {
+            return reindexAll(slices, cancellationToken, progress, journal);
+        } finally {
+            rebuildJournal.compareAndSet(journal, null);
+        }
+    }
+
+    private BulkIndexResult reindexAll(int slices, CancellationToken cancellationToken, Consumer<ReindexProgress> progress,
+                                       RebuildJournal journal) {
+        long start = System.currentTimeMillis();
+        List<DocSectionCount> counts = docSectionMapper.selectSectionCounts();
+        long totalSections = counts.stream().mapToLong(DocSectionCount::getSectionCount).sum();
+        int requested = slices > 0 ? slices : defaultSlices;
+        int maxSlices = getMaxReindexSlices();
+        if (requested > maxSlices) {
+            log.warn("分片数{}超过连接池允许的{}个，按{}个分片重建", requested, maxSlices, maxSlices);
+            requested = maxSlices;
+        }
+        List<Long[]> ranges = sliceDocIds(counts, totalSections, requested);
+
+        // 写入新版本索引，查询继续使用旧索引，完成后切换别名
+        String index;
+        try {
+            index = esIndexService.beginRebuild();
+        } catch (IOException | IllegalStateException e) {
+            log.error("创建新索引失败", e);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "创建新索引失败：" + e.getMessage());
+        }
+        log.info("开始重建章节索引{}，章节{}条，分片{}个", index, totalSections, ranges.size());
+
+        EsBulkIndexer.Session session = rebuildBulkIndexer.openSession();
+        RebuildCounter counter = new RebuildCounter(totalSections, ranges.size(), progress);
+        // 任一分片失败时其余分片在图书边界停止
+        CancellationToken failed = new CancellationToken();
+        BooleanSupplier stopRequested = () -> failed.isCancelled()
+                || (cancellationToken != null && cancellationToken.isCancelled());
+        List<SectionIndexHandler> handlers = new ArrayList<>();
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(ranges.size(), r -> {
+            Thread thread = new Thread(r, "es-rebuild-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        BulkIndexResult result;
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (Long[] range : ranges) {
+                SectionIndexHandler handler = new SectionIndexHandler(session, Collections.singletonList(index),
+                        stopRequested, counter);
+                handlers.add(handler);
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        // 每个分片占用一个数据库连接流式读取
+                        docSectionMapper.streamSectionsForIndex(range[0], range[1], handler);
+                        handler.finish();
+                        counter.sliceCompleted();
+                    } catch (RuntimeException e) {
+                        failed.cancel();
+                        log.error("图书ID {}~{} 的分片重建失败", range[0], range[1], e);
+                        throw e;
+                    }
+                }, executor));
+            }
+            try {
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+            try {
+                result = session.await();
+            } catch (IOException e) {
+                log.error("章节索引未完成", e);
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "章节索引未完成：" + e.getMessage());
+            }
+        } catch (RuntimeException e) {
+            esIndexService.abortRebuild(index);
+            throw e;
+        } finally {
+            executor.shutdownNow();
+        }
+        counter.report();
+
+        if (handlers.stream().anyMatch(SectionIndexHandler::isStopped)) {
+            esIndexService.abortRebuild(index);
+            log.info("章节索引重建已取消，已提交章节{}条，耗时{}ms", result.getTotal(), System.currentTimeMillis() - start);
+            return result;
+        }
+        if (result.getTotal() > 0 && (double) result.getFailed() / result.getTotal() > maxFailureRatio) {
+            esIndexService.abortRebuild(index);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, String.format("章节索引失败%d/%d条，超过允许比例，已放弃新索引",
+                    result.getFailed(), result.getTotal()));
+        }
+        try {
+            replayJournal(journal);
+        } catch (RuntimeException e) {
+            log.error("重放重建期间的增量写入失败，放弃新索引{}", index, e);
+            esIndexService.abortRebuild(index);
+            throw e;
+        }
+        try {
+            esIndexService.completeRebuild(index);
+            searchCacheService.invalidate();
+        } catch (IOException e) {
+            log.error("切换索引{}失败", index, e);
+            esIndexService.abortRebuild(index);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "切换索引失败：" + e.getMessage());
+        }
+
+        // 标记已索引：排除有章节失败的图书
+        Set<Long> indexedDocIds = new HashSet<>();
+        handlers.forEach(handler -> indexedDocIds.addAll(handler.getCompletedDocIds()));
+        if (!result.getFailures().isEmpty()) {
+            List<Long> failedSectionIds = result.getFailures().stream()
+                .map(failure -> Long.valueOf(failure.getId()))
                 .collect(Collectors.toList());
+            for (List<Long> ids : partition(failedSectionIds)) {
+                docSectionMapper.selectBatchIds(ids).forEach(section -> indexedDocIds.remove(section.getDocId()));
+            }
+        }
+        for (List<Long> ids : partition(new ArrayList<>(indexedDocIds))) {
+            LambdaUpdateWrapper<Doc> updateWrapper = new LambdaUpdateWrapper<>();
+            updateWrapper.in(Doc::getId, ids)
+                    .set(Doc::getIsIndexed, 1);
+            docMapper.update(null, updateWrapper);
+        }
 
-        // 返回分页结果
-        return new PageImpl<>(content, pageable, searchHits.getTotalHits());
+        log.info("章节索引重建完成，新索引{}，分片{}个，图书{}本，章节{}条，已有更新版本{}条，失败{}条，重试{}次，耗时{}ms", index,
+                ranges.size(), indexedDocIds.size(), result.getTotal(), result.getSkipped(), result.getFailed(),
+                result.getRetried(), System.currentTimeMillis() - start);
+        return result;
     }
 
     @Override
-    public void importDocSections(Long docId) {
-        // 查询图书的所有章节
-        LambdaQueryWrapper<DocSection> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(DocSection::getDocId, docId);
-        List<DocSection> sections = docSectionMapper.selectList(queryWrapper);
-        
-        if (sections.isEmpty()) {
+    public int getMaxReindexSlices() {
+        int poolSize;
+        try {
+            if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+                return Math.max(1, defaultSlices);
+            }
+            poolSize = dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+        } catch (SQLException e) {
+            return Math.max(1, defaultSlices);
+        }
+        return Math.max(1, (poolSize - reservedConnections) / 2);
+    }
+
+    /**
+     * 快照全部写入后，按数据库当前状态重新同步重建期间增量写入过的章节与图书，
+     * 覆盖快照中比增量写入更旧的内容，删除快照写回的已删除章节。
+     * 停止记录之后的增量写入发生在快照写完之后，不会再被覆盖
+     */
+    private void replayJournal(RebuildJournal journal) {
+        rebuildJournal.compareAndSet(journal, null);
+        if (journal.sectionIds.isEmpty() && journal.docIds.isEmpty()) {
             return;
         }
+        long start = System.currentTimeMillis();
+        if (!journal.sectionIds.isEmpty()) {
+            checkIndexResult(syncSections(new ArrayList<>(journal.sectionIds)));
+        }
+        for (Long docId : journal.docIds) {
+            Doc doc = docMapper.selectById(docId);
+            if (doc == null || Integer.valueOf(1).equals(doc.getIsDeleted())) {
+                deleteByDocId(docId.toString());
+                continue;
+            }
+            checkIndexResult(importDocSections(docId));
+            updateDocMetadata(docId);
+        }
+        log.info("已重放重建期间的增量写入，章节{}个，图书{}本，耗时{}ms", journal.sectionIds.size(),
+                journal.docIds.size(), System.currentTimeMillis() - start);
+    }
 
-        // 获取图书信息
+    private void recordSection(String sectionId) {
+        RebuildJournal journal = rebuildJournal.get();
+        if (journal != null && StringUtils.isNumeric(sectionId)) {
+            journal.sectionIds.add(Long.valueOf(sectionId));
+        }
+    }
+
+    private void recordDoc(String docId) {
+        RebuildJournal journal = rebuildJournal.get();
+        if (journal != null && StringUtils.isNumeric(docId)) {
+            journal.docIds.add(Long.valueOf(docId));
+        }
+    }
+
+    /**
+     * 按章节数把图书ID划分为连续区间{起始ID, 结束ID}（均含），各区间章节数相近；
+     * 首尾区间不设边界，统计之后新增的图书同样会被读取
+     */
+    private static List<Long[]> sliceDocIds(List<DocSectionCount> counts, long totalSections, int slices) {
+        List<Long[]> ranges = new ArrayList<>();
+        Long from = null;
+        long accumulated = 0;
+        for (int i = 0; i < counts.size() - 1 && ranges.size() < slices - 1; i++) {
+            accumulated += counts.get(i).getSectionCount();
+            if (accumulated * slices >= totalSections * (ranges.size() + 1)) {
+                Long to = counts.get(i).getDocId();
+                ranges.add(new Long[]{from, to});
+                from = to + 1;
+            }
+        }
+        ranges.add(new Long[]{from, null});
+        return ranges;
+    }
+
+    @Override
+    public BulkIndexResult syncSections(Collection<Long> sectionIds) {
+        RebuildJournal journal = rebuildJournal.get();
+        if (journal != null) {
+            journal.sectionIds.addAll(sectionIds);
+        }
+        Map<Long, DocSection> sections = new HashMap<>();
+        for (List<Long> ids : partition(new ArrayList<>(sectionIds))) {
+            docSectionMapper.selectBatchIds(ids).forEach(section -> sections.put(section.getId(), section));
+        }
+
+        EsBulkIndexer.Session session = esBulkIndexer.openSession();
+        List<String> targets = esIndexService.getWriteTargets();
+        ElasticsearchConverter converter = elasticsearchOperations.getElasticsearchConverter();
+        // 同一本图书的章节共用图书信息，图书不存在或已删除时为null
+        Map<Long, DocIndexMeta> metas = new HashMap<>();
+        // 数据库中已没有的章节不知道所属图书，在按路由写入的索引中只能按ID查询删除
+        List<String> unroutedDeletes = new ArrayList<>();
+        for (Long id : sectionIds) {
+            DocSection section = sections.get(id);
+            DocIndexMeta meta = null;
+            if (section != null && !Integer.valueOf(1).equals(section.getIsDeleted())) {
+                if (!metas.containsKey(section.getDocId())) {
+                    Doc doc = docMapper.selectById(section.getDocId());
+                    boolean live = doc != null && !Integer.valueOf(1).equals(doc.getIsDeleted());
+                    metas.put(section.getDocId(), live ? loadDocIndexMeta(doc) : null);
+                }
+                meta = metas.get(section.getDocId());
+            }
+            if (meta == null) {
+                for (String target : targets) {
+                    if (section != null && section.getDocId() != null) {
+                        session.delete(target, id.toString(), routing(target, section.getDocId().toString()));
+                    } else if (esIndexService.isRouted(target)) {
+                        unroutedDeletes.add(id.toString());
+                    } else {
+                        session.delete(target, id.toString(), null);
+                    }
+                }
+            } else {
+                DocSectionDocument document = toDocument(section, meta);
+                Object source = converter.mapObject(document);
+                for (String target : targets) {
+                    session.index(target, document.getId(), routing(target, document.getDocId()), source);
+                }
+            }
+        }
+        try {
+            if (!unroutedDeletes.isEmpty()) {
+                esClient.deleteByQuery(d -> d
+                    .index(targets)
+                    .query(q -> q.ids(i -> i.values(unroutedDeletes)))
+                    .conflicts(Conflicts.Proceed));
+            }
+            BulkIndexResult result = session.await();
+            searchCacheService.invalidate();
+            return result;
+        } catch (IOException e) {
+            log.error("章节索引同步未完成", e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "章节索引同步未完成：" + e.getMessage());
+        }
+    }
+
+    @Override
+    public long updateDocMetadata(Long docId) {
         Doc doc = docMapper.selectById(docId);
-        if (doc == null) {
+        if (doc == null || Integer.valueOf(1).equals(doc.getIsDeleted())) {
             throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "图书不存在");
         }
+        recordDoc(docId.toString());
+        // 只转换图书信息字段，章节ID、页码和正文为null，不会出现在参数中
+        DocSectionDocument metadata = new DocSectionDocument();
+        applyDocMeta(metadata, loadDocIndexMeta(doc));
+        Map<String, Object> fields = elasticsearchOperations.getElasticsearchConverter().mapObject(metadata);
+
+        long updated = 0;
+        for (String target : esIndexService.getWriteTargets()) {
+            UpdateByQueryResponse response;
+            try {
+                response = esClient.updateByQuery(u -> u
+                    .index(target)
+                    .routing(routing(target, docId.toString()))
+                    .query(q -> q.term(t -> t.field("book_id").value(docId.toString())))
+                    .script(sc -> sc.inline(i -> i
+                        .lang("painless")
+                        .source(UPDATE_METADATA_SCRIPT)
+                        .params("fields", JsonData.of(fields))))
+                    .conflicts(Conflicts.Proceed));
+            } catch (IOException e) {
+                log.error("更新图书ID：{}的索引图书信息失败", docId, e);
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "更新索引图书信息失败：" + e.getMessage());
+            }
+            // 与并发写入冲突的章节已是最新内容之前的版本，交给调用方重试
+            if (!response.failures().isEmpty() || (response.versionConflicts() != null && response.versionConflicts() > 0)) {
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, String.format("索引%s中图书ID：%d的%d条章节更新冲突，%d条失败",
+                    target, docId, response.versionConflicts(), response.failures().size()));
+            }
+            updated += response.updated() == null ? 0 : response.updated();
+        }
+        if (updated > 0) {
+            searchCacheService.invalidate();
+        }
+        log.info("图书ID：{}的索引图书信息已更新，章节{}条", docId, updated);
+        return updated;
+    }
 
+    /**
+     * 写入目标按图书ID路由时返回图书ID，否则返回null按文档ID路由
+     */
+    private String routing(String target, String docId) {
+        return esIndexService.isRouted(target) ? docId : null;
+    }
+
+    /**
+     * 同一请求作用于多个目标时只能使用一个路由值，全部按路由写入时才能带路由
+     */
+    private String routing(List<String> targets, String docId) {
+        return targets.stream().allMatch(esIndexService::isRouted) ? docId : null;
+    }
+
+    private static List<List<Long>> partition(List<Long> ids) {
+        List<List<Long>> parts = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += UPDATE_BATCH_SIZE) {
+            parts.add(ids.subList(i, Math.min(i + UPDATE_BATCH_SIZE, ids.size())));
+        }
+        return parts;
+    }
+
+    /**
+     * 加载一本图书写入章节文档时共用的信息
+     */
+    private DocIndexMeta loadDocIndexMeta(Doc doc) {
         // 获取图书的主题标签
-        TopicLevel topicLevels = getDocTopics(docId);
-        List<Topic> topicTags = topicService.getDocTopicTags(docId);
+        TopicLevel topicLevels = getDocTopics(doc.getId());
+        List<Topic> topicTags = topicService.getDocTopicTags(doc.getId());
         //提取topicTags中的name字段，存入tags[]数组
         String[] tags = topicTags.stream()
             .map(Topic::getName)
             .toArray(String[]::new);
+        return new DocIndexMeta(doc, topicLevels, tags);
+    }
 
-        // 批量转换并保存到ES
-        List<DocSectionDocument> documents = sections.stream()
-            .map(section -> {
-                DocSectionDocument document = new DocSectionDocument();
-                document.setId(section.getId().toString());
-                document.setDocId(docId.toString());
-                document.setDocTitle(doc.getTitle());
-                document.setIsbn(doc.getIsbn());
-                document.setAuthor(doc.getAuthor());
-                document.setPublisher(doc.getPublisher());
-                document.setPageNum(section.getPageNum());
-                document.setSectionText(section.getContent());
-                document.setFileName(doc.getFileName());
-                document.setPicUrl(doc.getPicUrl());
-                //将字符串转化为Integer
-                document.setPublicationYear(doc.getPublicationYear() != null ? Integer.parseInt(doc.getPublicationYear()) : null);
-                document.setTimestamp(new Date());
-                document.setVersion("1");
-                document.setTopicLevels(topicLevels);  // 设置主题标签
-                document.setTags(tags);
-                document.setOpacSeries(doc.getOpacSeries());
-                document.setSeries(doc.getSeries());
-                document.setCategory(doc.getCategory());
-                document.setType(doc.getType());
-                return document;
-            })
-            .collect(Collectors.toList());
-
-        docSectionRepository.saveAll(documents);
+    private DocSectionDocument toDocument(DocSection section, DocIndexMeta meta) {
+        DocSectionDocument document = new DocSectionDocument();
+        document.setId(section.getId().toString());
+        document.setPageNum(section.getPageNum());
+        document.setSectionText(section.getContent());
+        document.setContentHash(SectionChecksum.of(section.getId(), section.getContentHash()));
+        document.setVersion("1");
+        applyDocMeta(document, meta);
+        return document;
+    }
+
+    /**
+     * 填充章节文档中冗余的图书信息与主题，整页写入与只更新图书信息共用，保证两者字段一致
+     */
+    private void applyDocMeta(DocSectionDocument document, DocIndexMeta meta) {
+        Doc doc = meta.doc;
+        document.setDocId(doc.getId().toString());
+        document.setDocTitle(doc.getTitle());
+        document.setIsbn(doc.getIsbn());
+        document.setAuthor(doc.getAuthor());
+        document.setPublisher(doc.getPublisher());
+        document.setFileName(doc.getFileName());
+        document.setPicUrl(doc.getPicUrl());
+        //将字符串转化为Integer
+        document.setPublicationYear(doc.getPublicationYear() != null ? Integer.parseInt(doc.getPublicationYear()) : null);
+        document.setTimestamp(new Date());
+        document.setTopicLevels(meta.topicLevels);  // 设置主题标签
+        document.setTags(meta.tags);
+        document.setOpacSeries(doc.getOpacSeries());
+        document.setSeries(doc.getSeries());
+        document.setCategory(doc.getCategory());
+        document.setType(doc.getType());
+    }
+
+    /**
+     * 一本图书所有章节共用的图书信息与主题
+     */
+    private static final class DocIndexMeta {
+
+        private final Doc doc;
+
+        private final TopicLevel topicLevels;
+
+        private final String[] tags;
+
+        private DocIndexMeta(Doc doc, TopicLevel topicLevels, String[] tags) {
+            this.doc = doc;
+            this.topicLevels = topicLevels;
+            this.tags = tags;
+        }
+    }
+
+    /**
+     * 逐行接收一个分片内按图书ID、页码排序的章节并交给批量索引器
+     * 章节按图书连续到达，只需缓存当前图书的信息；图书切换时加载下一本，内存占用与章节总数无关。
+     * 章节从流式结果集读出后立即提交，批量索引器的背压会让读取暂停，因此结果集不会在内存中堆积
+     */
+    private class SectionIndexHandler implements ResultHandler<DocSection> {
+
+        private final EsBulkIndexer.Session session;
+
+        private final BooleanSupplier stopRequested;
+
+        private final RebuildCounter counter;
+
+        /**
+         * 写入的索引或别名
+         */
+        private final List<String> targets;
+
+        /**
+         * 各写入目标是否按图书ID路由
+         */
+        private final boolean[] routed;
+
+        private final ElasticsearchConverter converter;
+
+        /**
+         * 已提交全部章节的图书
+         */
+        private final Set<Long> completedDocIds = new HashSet<>();
+
+        private Long currentDocId;
+
+        /**
+         * 当前图书的信息，图书不存在或已删除时为null，其章节被跳过
+         */
+        private DocIndexMeta current;
+
+        private boolean stopped;
+
+        private SectionIndexHandler(EsBulkIndexer.Session session, List<String> targets,
+                                    BooleanSupplier stopRequested, RebuildCounter counter) {
+            this.session = session;
+            this.targets = targets;
+            this.routed = new boolean[targets.size()];
+            for (int i = 0; i < targets.size(); i++) {
+                this.routed[i] = esIndexService.isRouted(targets.get(i));
+            }
+            this.stopRequested = stopRequested;
+            this.counter = counter;
+            this.converter = elasticsearchOperations.getElasticsearchConverter();
+        }
+
+        @Override
+        public void handleResult(ResultContext<? extends DocSection> context) {
+            DocSection section = context.getResultObject();
+            if (!section.getDocId().equals(currentDocId)) {
+                if (stopRequested.getAsBoolean()) {
+                    // 在图书边界停止，已提交的图书都是完整的
+                    stopped = true;
+                    context.stop();
+                    return;
+                }
+                finishCurrentDoc();
+                currentDocId = section.getDocId();
+                Doc doc = docMapper.selectById(currentDocId);
+                current = doc == null ? null : loadDocIndexMeta(doc);
+            }
+            if (current == null) {
+                return;
+            }
+            // 按实体上的@Field映射转换字段名，与repository保存的文档结构一致
+            DocSectionDocument document = toDocument(section, current);
+            Object source = converter.mapObject(document);
+            // 快照可能比重建期间的增量写入更旧，只在文档不存在时写入，不覆盖增量写入的版本
+            for (int i = 0; i < targets.size(); i++) {
+                session.create(targets.get(i), document.getId(), routed[i] ? document.getDocId() : null, source);
+            }
+            counter.add(utf8Length(section.getContent()));
+        }
+
+        private void finishCurrentDoc() {
+            if (current != null) {
+                completedDocIds.add(currentDocId);
+            }
+        }
+
+        /**
+         * 结果集读完后调用，中途停止时最后一本图书不完整，不计入已完成
+         */
+        private void finish() {
+            if (!stopped) {
+                finishCurrentDoc();
+            }
+        }
+
+        private Set<Long> getCompletedDocIds() {
+            return completedDocIds;
+        }
+
+        private boolean isStopped() {
+            return stopped;
+        }
+    }
+
+    /**
+     * 全量重建期间增量写入过的章节与图书，多个线程同时记录
+     */
+    private static final class RebuildJournal {
+
+        private final Set<Long> sectionIds = ConcurrentHashMap.newKeySet();
+
+        private final Set<Long> docIds = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * 全量重建中各分片共用的计数，按提交的章节数定期汇报进度、速度与剩余时间
+     */
+    private static final class RebuildCounter {
+
+        private final long totalSections;
+
+        private final int slices;
+
+        private final Consumer<ReindexProgress> listener;
+
+        private final long start = System.currentTimeMillis();
+
+        private final AtomicLong sections = new AtomicLong();
+
+        private final AtomicLong bytes = new AtomicLong();
+
+        private final AtomicInteger completedSlices = new AtomicInteger();
+
+        private RebuildCounter(long totalSections, int slices, Consumer<ReindexProgress> listener) {
+            this.totalSections = totalSections;
+            this.slices = slices;
+            this.listener = listener;
+        }
+
+        private void add(long sectionBytes) {
+            bytes.addAndGet(sectionBytes);
+            if (sections.incrementAndGet() % PROGRESS_INTERVAL == 0) {
+                report();
+            }
+        }
+
+        private void sliceCompleted() {
+            completedSlices.incrementAndGet();
+            report();
+        }
+
+        /**
+         * 多个分片线程同时汇报时串行调用回调，回调中不需要再加锁
+         */
+        private synchronized void report() {
+            if (listener == null) {
+                return;
+            }
+            long submitted = sections.get();
+            long elapsed = Math.max(1, System.currentTimeMillis() - start);
+            ReindexProgress progress = new ReindexProgress();
+            progress.setTotalSections(totalSections);
+            progress.setSubmittedSections(submitted);
+            progress.setSubmittedBytes(bytes.get());
+            progress.setSlices(slices);
+            progress.setCompletedSlices(completedSlices.get());
+            progress.setElapsedMs(elapsed);
+            progress.setDocsPerSecond(submitted * 1000.0 / elapsed);
+            progress.setMbPerSecond(bytes.get() * 1000.0 / elapsed / (1024 * 1024));
+            if (submitted > 0) {
+                progress.setEtaSeconds(Math.max(0, totalSections - submitted) * elapsed / submitted / 1000);
+            }
+            listener.accept(progress);
+        }
+    }
+
+    /**
+     * 字符串按UTF-8编码后的字节数，不实际编码
+     */
+    private static long utf8Length(String text) {
+        if (text == null) {
+            return 0;
+        }
+        long length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                // 代理对共4字节，低位代理不再计数
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * 有章节索引失败时抛出异常，索引状态保持不变
+     */
+    private void checkIndexResult(BulkIndexResult result) {
+        if (result.getFailed() > 0) {
+            BulkIndexResult.Failure first = result.getFailures().get(0);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, String.format("%d条章节索引失败，章节ID:%s，原因：%s",
+                    result.getFailed(), first.getId(), first.getReason()));
+        }
     }
 
     // 获取图书的主题标签
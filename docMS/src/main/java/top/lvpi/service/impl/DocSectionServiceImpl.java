@@ -5,33 +5,64 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import top.lvpi.mapper.DocSectionMapper;
-import top.lvpi.mapper.DocMapper;
 import top.lvpi.model.entity.DocSection;
-import top.lvpi.model.entity.Doc;
-import top.lvpi.model.entity.Topic;
-import top.lvpi.model.es.DocSectionDocument;
-import top.lvpi.model.es.TopicLevel;
-import top.lvpi.model.dto.topic.TopicPathDTO;
+import top.lvpi.model.entity.EsOutbox;
 import top.lvpi.service.DocSectionService;
-import top.lvpi.service.DocSectionEsService;
-import top.lvpi.service.TopicService;
-import top.lvpi.common.BusinessException;
-import top.lvpi.common.ErrorCode;
+import top.lvpi.service.EsOutboxService;
+import top.lvpi.utils.SectionChecksum;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.RequiredArgsConstructor;
-import java.util.Date;
-import java.util.List;
-import java.util.ArrayList;
+import lombok.extern.slf4j.Slf4j;
 
+import java.util.Collection;
+
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class DocSectionServiceImpl extends ServiceImpl<DocSectionMapper, DocSection> implements DocSectionService {
 
-    private final DocSectionEsService docSectionEsService;
-    private final DocMapper docMapper;
-    private final TopicService topicService;
+    private final EsOutboxService esOutboxService;
+
+    /**
+     * 补齐content_hash时每条语句覆盖的主键范围
+     */
+    @Value("${es.content-hash-backfill.batch-size:2000}")
+    private int backfillBatchSize;
+
+    /**
+     * 补齐content_hash时相邻两批之间的停顿（毫秒），让出数据库给在线写入
+     */
+    @Value("${es.content-hash-backfill.pause-ms:100}")
+    private long backfillPauseMs;
+
+    /**
+     * 单次补齐最多执行的批数，其余留到下次调度，避免长时间占用调度线程
+     */
+    @Value("${es.content-hash-backfill.max-batches:500}")
+    private int backfillMaxBatches;
+
+    /**
+     * 补齐content_hash已处理到的主键（不含），之后新写入的章节在写入时已计算；
+     * 为-1表示本进程尚未定位，从第一个缺少content_hash的章节开始，重启后不再从头扫描
+     */
+    private volatile long backfillFromId = -1;
+
+    @Override
+    public boolean save(DocSection docSection) {
+        fillContentHash(docSection);
+        return super.save(docSection);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean saveBatch(Collection<DocSection> docSections, int batchSize) {
+        docSections.forEach(DocSectionServiceImpl::fillContentHash);
+        return super.saveBatch(docSections, batchSize);
+    }
     
     @Override
     public IPage<DocSection> page(Integer current, Integer size, Long docId,Integer pageNum, String title, String content) {
@@ -66,45 +97,14 @@ public class DocSectionServiceImpl extends ServiceImpl<DocSectionMapper, DocSect
     public boolean updateWithEs(DocSection docSection) {
         // 1. 更新MySQL数据
         boolean success = updateById(docSection);
-        
+
         if (success) {
-            // 2. 查询完整的图书信息
-            Doc doc = docMapper.selectById(docSection.getDocId());
-            if (doc == null) {
-                throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "图书不存在");
-            }
-            
-            // 3. 获取图书的主题标签
-            TopicLevel topicLevels = getDocTopics(doc.getId());
-            List<Topic> topicTags = topicService.getDocTopicTags(doc.getId());
-            String[] tags = topicTags.stream()
-                .map(Topic::getName)
-                .toArray(String[]::new);
-            
-            // 4. 转换为ES文档并更新
-            DocSectionDocument document = new DocSectionDocument();
-            document.setId(docSection.getId().toString());
-            document.setDocId(doc.getId().toString());
-            document.setDocTitle(doc.getTitle());
-            document.setIsbn(doc.getIsbn());
-            document.setAuthor(doc.getAuthor());
-            document.setPublisher(doc.getPublisher());
-            document.setPageNum(docSection.getPageNum());
-            document.setSectionText(docSection.getContent());
-            document.setFileName(doc.getFileName());
-            document.setPicUrl(doc.getPicUrl());
-            document.setPublicationYear(doc.getPublicationYear() != null ? Integer.parseInt(doc.getPublicationYear()) : null);
-            document.setTimestamp(new Date());
-            document.setVersion("1");
-            document.setTopicLevels(topicLevels);
-            document.setTags(tags);
-            document.setOpacSeries(doc.getOpacSeries());
-            document.setSeries(doc.getSeries());
-            document.setType(doc.getType());
-            
-            docSectionEsService.saveOrUpdate(document);
+            // 请求可能只包含部分字段，按更新后的页码与正文重新计算校验值
+            baseMapper.refreshContentHash(docSection.getId());
+            // 2. 与更新在同一事务中写入发件箱，由后台任务同步ES索引
+            esOutboxService.enqueue(EsOutbox.TYPE_SECTION, docSection.getId(), EsOutbox.OP_UPSERT);
         }
-        
+
         return success;
     }
 
@@ -115,47 +115,73 @@ public class DocSectionServiceImpl extends ServiceImpl<DocSectionMapper, DocSect
         boolean success = removeById(docSectionId);
 
         if (success) {
-            // 2. 同步删除ES索引
-            docSectionEsService.deleteById(String.valueOf(docSectionId));
+            // 2. 与删除在同一事务中写入发件箱，由后台任务删除ES索引
+            esOutboxService.enqueue(EsOutbox.TYPE_SECTION, docSectionId, EsOutbox.OP_DELETE);
         }
 
         return success;
     }
 
-    // 获取图书的主题标签
-    private TopicLevel getDocTopics(Long docId) {
-        // 使用 TopicServiceImpl 中的方法获取与书籍相关的主题
-        List<TopicPathDTO> topicsList = topicService.getDocTopicPaths(docId);
-        //区分依据：levelSize区分等级取出path，存入各个等级数组中
-        List<String> lvl0 = new ArrayList<>();
-        List<String> lvl1 = new ArrayList<>();
-        List<String> lvl2 = new ArrayList<>();
-        List<String> lvl3 = new ArrayList<>();
-        List<String> lvl4 = new ArrayList<>();
-        for(TopicPathDTO topicPath : topicsList){
-            if(topicPath.getLevelSize() == 0){
-                lvl0.add(topicPath.getPath());
-            }
-            if(topicPath.getLevelSize() == 1){
-                lvl1.add(topicPath.getPath());
-            }
-            if(topicPath.getLevelSize() == 2){
-                lvl2.add(topicPath.getPath());
-            }
-            if(topicPath.getLevelSize() == 3){
-                lvl3.add(topicPath.getPath());
-            }
-            if(topicPath.getLevelSize() == 4){
-                lvl4.add(topicPath.getPath());
+    @Override
+    public Long findExtractedDocIdBySameFile(String fileName, Long excludeDocId) {
+        if (StringUtils.isBlank(fileName)) {
+            return null;
+        }
+        return baseMapper.selectExtractedDocIdBySameFile(fileName, excludeDocId);
+    }
+
+    @Override
+    public int copySections(Long sourceDocId, Long targetDocId, String title) {
+        return baseMapper.copySections(sourceDocId, targetDocId, title);
+    }
+
+    /**
+     * 按主键范围逐段更新，不在启动时改表，也不长时间锁定整张表；补齐后校验值变化的图书由一致性核对重新同步
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${es.content-hash-backfill.interval-ms:600000}",
+            initialDelayString = "${es.content-hash-backfill.initial-delay-ms:60000}")
+    public int backfillContentHash() {
+        Long maxId = baseMapper.selectMaxId();
+        if (maxId == null) {
+            return 0;
+        }
+        if (backfillFromId < 0) {
+            Long minId = baseMapper.selectMinIdWithoutHash();
+            backfillFromId = minId == null ? maxId + 1 : minId;
+        }
+        if (backfillFromId > maxId) {
+            return 0;
+        }
+        long start = System.currentTimeMillis();
+        long step = Math.max(1, backfillBatchSize);
+        int filled = 0;
+        int batches = 0;
+        long fromId = backfillFromId;
+        while (fromId <= maxId && batches < backfillMaxBatches) {
+            if (batches > 0 && backfillPauseMs > 0) {
+                try {
+                    Thread.sleep(backfillPauseMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.warn("补齐content_hash被中断，处理到章节ID {}", fromId);
+                    break;
+                }
             }
-        }   
-
-        TopicLevel topicLevelObj = new TopicLevel();
-        topicLevelObj.setLvl0(lvl0.toArray(new String[0]));
-        topicLevelObj.setLvl1(lvl1.toArray(new String[0]));
-        topicLevelObj.setLvl2(lvl2.toArray(new String[0]));
-        topicLevelObj.setLvl3(lvl3.toArray(new String[0]));
-        topicLevelObj.setLvl4(lvl4.toArray(new String[0]));
-        return topicLevelObj;
+            long toId = fromId + step;
+            filled += baseMapper.backfillContentHash(fromId, toId);
+            fromId = toId;
+            backfillFromId = fromId;
+            batches++;
+        }
+        if (filled > 0) {
+            log.info("已补齐{}个章节的content_hash，处理到章节ID {}，耗时{}ms", filled, fromId - 1,
+                    System.currentTimeMillis() - start);
+        }
+        return filled;
+    }
+
+    private static void fillContentHash(DocSection docSection) {
+        docSection.setContentHash(SectionChecksum.contentHash(docSection.getPageNum(), docSection.getContent()));
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -18,14 +18,15 @@ import top.lvpi.model.entity.Doc;
 import top.lvpi.model.entity.DocFile;
 import top.lvpi.model.entity.DocSection;
 import top.lvpi.model.entity.DocTopic;
+import top.lvpi.model.entity.EsOutbox;
 import top.lvpi.model.entity.LpFile;
 import top.lvpi.model.entity.OpacDocInfo;
 import top.lvpi.model.vo.DocVO;
 import top.lvpi.service.DocFileService;
-import top.lvpi.service.DocSectionEsService;
 import top.lvpi.service.DocSectionService;
 import top.lvpi.service.DocService;
 import top.lvpi.service.DocTopicService;
+import top.lvpi.service.EsOutboxService;
 import top.lvpi.service.ImgService;
 import top.lvpi.service.LpFileService;
 import top.lvpi.service.TopicService;
@@ -80,7 +81,7 @@ public class DocServiceImpl extends ServiceImpl<DocMapper, Doc> implements DocSe
     private DocFileService docFileService;
 
     @Autowired
-    private DocSectionEsService docSectionEsService;
+    private EsOutboxService esOutboxService;
 
     @Autowired
     private TopicService topicService;
@@ -227,16 +228,8 @@ public class DocServiceImpl extends ServiceImpl<DocMapper, Doc> implements DocSe
                 log.info("No doc topics found, skipping topic deletion");
             }
             
-            //检查是否存在ES索引，如存在则删除
-            try {
-                //尝试删除ES索引，如果不存在会捕获异常
-                docSectionEsService.deleteByDocId(id.toString());
-            } catch (Exception e) {
-                //如果删除失败，记录日志但不影响整体流程
-                log.info("No ES index found for docId: " + id + ", skipping ES index deletion");
-            }
-
-
+            //写入发件箱，由后台任务删除ES索引，与图书删除一同提交或回滚
+            esOutboxService.enqueue(EsOutbox.TYPE_DOC, id, EsOutbox.OP_DELETE);
 
             return true;
         } catch (Exception e) {
@@ -257,6 +250,11 @@ public class DocServiceImpl extends ServiceImpl<DocMapper, Doc> implements DocSe
                 return false;
             }
 
+            // 修改了索引中冗余的图书信息时，只更新各章节文档的图书信息字段
+            if (hasIndexedMetadata(docUpdateRequest)) {
+                esOutboxService.enqueue(EsOutbox.TYPE_DOC, doc.getId(), EsOutbox.OP_METADATA);
+            }
+
             // 2. 处理文件关联关系
             if (docUpdateRequest.getFileId() != null) {
                 // 2.0 先检查是否已存在相同的文件关联记录
@@ -296,6 +294,16 @@ public class DocServiceImpl extends ServiceImpl<DocMapper, Doc> implements DocSe
         }
     }
 
+    /**
+     * 更新请求是否包含章节索引中冗余的图书字段，只更新状态、页数等字段时不需要同步索引
+     */
+    private static boolean hasIndexedMetadata(DocUpdateRequest request) {
+        return request.getTitle() != null || request.getAuthor() != null || request.getPublisher() != null
+            || request.getPublicationYear() != null || request.getIsbn() != null || request.getCategory() != null
+            || request.getFileName() != null || request.getPicUrl() != null || request.getSeries() != null
+            || request.getOpacSeries() != null;
+    }
+
     @Override
     public Doc getDocById(Long id) {
         return docMapper.selectById(id);
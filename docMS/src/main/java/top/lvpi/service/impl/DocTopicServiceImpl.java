@@ -5,13 +5,21 @@ import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import top.lvpi.mapper.DocTopicMapper;
 import top.lvpi.model.entity.DocTopic;
+import top.lvpi.model.entity.EsOutbox;
 import top.lvpi.service.DocTopicService;
+import top.lvpi.service.EsOutboxService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class DocTopicServiceImpl extends ServiceImpl<DocTopicMapper, DocTopic> implements DocTopicService {
 
+    @Autowired
+    private EsOutboxService esOutboxService;
+
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public Long addDocTopic(Long docId, Long topicId) {
         // 检查是否已存在该关联
         LambdaQueryWrapper<DocTopic> wrapper = new LambdaQueryWrapper<>();
@@ -30,25 +38,37 @@ public class DocTopicServiceImpl extends ServiceImpl<DocTopicMapper, DocTopic> i
         docTopic.setTopicId(topicId);
         
         this.save(docTopic);
+        // 主题变化只更新索引中的图书信息字段
+        esOutboxService.enqueue(EsOutbox.TYPE_DOC, docId, EsOutbox.OP_METADATA);
         return docTopic.getId();
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public boolean removeDocTopic(Long docId, Long topicId) {
         LambdaUpdateWrapper<DocTopic> wrapper = new LambdaUpdateWrapper<>();
         wrapper.eq(DocTopic::getDocId, docId)
                 .eq(DocTopic::getTopicId, topicId)
                 .eq(DocTopic::getIsDeleted, 0);
         
-        return this.remove(wrapper);
+        boolean removed = this.remove(wrapper);
+        if (removed) {
+            esOutboxService.enqueue(EsOutbox.TYPE_DOC, docId, EsOutbox.OP_METADATA);
+        }
+        return removed;
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public boolean removeAllDocTopics(Long docId) {
         LambdaUpdateWrapper<DocTopic> wrapper = new LambdaUpdateWrapper<>();
         wrapper.eq(DocTopic::getDocId, docId)
                 .eq(DocTopic::getIsDeleted, 0);
         
-        return this.remove(wrapper);
+        boolean removed = this.remove(wrapper);
+        if (removed) {
+            esOutboxService.enqueue(EsOutbox.TYPE_DOC, docId, EsOutbox.OP_METADATA);
+        }
+        return removed;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,339 @@
+package top.lvpi.service.impl;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.mapping.TypeMapping;
+import co.elastic.clients.elasticsearch.indices.CreateIndexRequest;
+import co.elastic.clients.elasticsearch.indices.ForcemergeResponse;
+import co.elastic.clients.elasticsearch.indices.GetMappingResponse;
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import co.elastic.clients.elasticsearch.indices.IndexState;
+import co.elastic.clients.elasticsearch.indices.get_mapping.IndexMappingRecord;
+import co.elastic.clients.elasticsearch.indices.update_aliases.Action;
+import co.elastic.clients.json.JsonData;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.stereotype.Service;
+import top.lvpi.model.es.DocSectionDocument;
+import top.lvpi.service.EsIndexService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Service
+public class EsIndexServiceImpl implements EsIndexService {
+
+    private static final String WRITE_ALIAS_SUFFIX = "_write";
+
+    private static final String VERSION_INFIX = "_v";
+
+    private static final String DEFAULT_REFRESH_INTERVAL = "1s";
+
+    private static final String DEFAULT_REPLICAS = "1";
+
+    /**
+     * 映射_meta中的版本号字段，没有该字段的索引视为第1版
+     */
+    private static final String MAPPING_VERSION = "mapping_version";
+
+    /**
+     * 轮询段合并任务的间隔
+     */
+    private static final long TASK_POLL_MS = 5000;
+
+    @Autowired
+    private ElasticsearchClient esClient;
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Value("${es.index.mapping:es/docs-mapping-v2.json}")
+    private String mappingFile;
+
+    @Value("${es.index.delete-previous:true}")
+    private boolean deletePrevious;
+
+    @Value("${es.index.force-merge-timeout-ms:7200000}")
+    private long forceMergeTimeoutMs;
+
+    /**
+     * 正在重建的新索引，没有重建时为null
+     */
+    private volatile String rebuildingIndex;
+
+    /**
+     * 索引或别名是否按路由写入，别名切换后清空
+     */
+    private final Map<String, Boolean> routedCache = new ConcurrentHashMap<>();
+
+    @Override
+    public void initialize() throws IOException {
+        String readAlias = getReadAlias();
+        String writeAlias = getWriteAlias();
+
+        boolean exists = esClient.indices().exists(e -> e.index(readAlias)).value();
+        if (!exists) {
+            String index = createIndex(readAlias + VERSION_INFIX + 1);
+            esClient.indices().updateAliases(u -> u
+                .actions(a -> a.add(add -> add.index(index).alias(readAlias)))
+                .actions(a -> a.add(add -> add.index(index).alias(writeAlias).isWriteIndex(true))));
+            log.info("已创建索引{}，读别名{}，写别名{}", index, readAlias, writeAlias);
+            return;
+        }
+
+        if (!esClient.indices().existsAlias(e -> e.name(writeAlias)).value()) {
+            // 旧版本直接以读别名为名创建的具体索引，补上写别名，首次重建时整体替换为版本索引
+            List<String> live = resolve(readAlias);
+            if (live.size() != 1) {
+                throw new IllegalStateException(readAlias + "对应" + live.size() + "个物理索引，无法确定写别名指向");
+            }
+            esClient.indices().updateAliases(u -> u
+                .actions(a -> a.add(add -> add.index(live.get(0)).alias(writeAlias).isWriteIndex(true))));
+            log.info("为索引{}补充写别名{}", live.get(0), writeAlias);
+        } else {
+            log.info("索引别名{}、{}已存在", readAlias, writeAlias);
+        }
+        checkMappingVersion(readAlias);
+    }
+
+    @Override
+    public String getReadAlias() {
+        return elasticsearchOperations.getIndexCoordinatesFor(DocSectionDocument.class).getIndexName();
+    }
+
+    private String getWriteAlias() {
+        return getReadAlias() + WRITE_ALIAS_SUFFIX;
+    }
+
+    @Override
+    public List<String> getWriteTargets() {
+        List<String> targets = new ArrayList<>(2);
+        targets.add(getWriteAlias());
+        String rebuilding = rebuildingIndex;
+        if (rebuilding != null) {
+            targets.add(rebuilding);
+        }
+        return targets;
+    }
+
+    @Override
+    public boolean isRouted(String target) {
+        Boolean routed = routedCache.get(target);
+        if (routed == null) {
+            try {
+                GetMappingResponse response = esClient.indices().getMapping(g -> g.index(target));
+                routed = !response.result().isEmpty() && response.result().values().stream()
+                    .allMatch(record -> record.mappings() != null && record.mappings().routing() != null
+                        && record.mappings().routing().required());
+            } catch (IOException e) {
+                throw new UncheckedIOException("读取索引" + target + "的映射失败", e);
+            }
+            routedCache.put(target, routed);
+        }
+        return routed;
+    }
+
+    @Override
+    public boolean isRebuilding() {
+        return rebuildingIndex != null;
+    }
+
+    @Override
+    public synchronized String beginRebuild() throws IOException {
+        if (rebuildingIndex != null) {
+            throw new IllegalStateException("索引" + rebuildingIndex + "正在重建");
+        }
+        String index = createIndex(getReadAlias() + VERSION_INFIX + nextVersion());
+        // 写入期间不刷新、不复制，完成后恢复
+        putSettings(index, "-1", "0");
+        rebuildingIndex = index;
+        log.info("开始重建索引{}", index);
+        return index;
+    }
+
+    @Override
+    public synchronized void completeRebuild(String index) throws IOException {
+        String readAlias = getReadAlias();
+        String writeAlias = getWriteAlias();
+        List<String> oldRead = resolve(readAlias);
+        List<String> oldWrite = resolve(writeAlias);
+
+        // 恢复为当前线上索引的刷新间隔与副本数
+        String refreshInterval = DEFAULT_REFRESH_INTERVAL;
+        String replicas = DEFAULT_REPLICAS;
+        if (!oldRead.isEmpty()) {
+            IndexState state = esClient.indices().getSettings(g -> g.index(oldRead.get(0))).get(oldRead.get(0));
+            IndexSettings settings = state == null ? null : state.settings();
+            if (settings != null && settings.index() != null) {
+                settings = settings.index();
+            }
+            if (settings != null && settings.refreshInterval() != null && settings.refreshInterval().time() != null) {
+                refreshInterval = settings.refreshInterval().time();
+            }
+            if (settings != null && settings.numberOfReplicas() != null) {
+                replicas = settings.numberOfReplicas();
+            }
+        }
+        putSettings(index, refreshInterval, replicas);
+        esClient.indices().refresh(r -> r.index(index));
+        forceMerge(index);
+
+        // 读写别名在同一个请求中切换；旧版具体索引与别名同名，只能在同一请求中删除
+        List<Action> actions = new ArrayList<>();
+        actions.add(Action.of(a -> a.add(add -> add.index(index).alias(readAlias))));
+        actions.add(Action.of(a -> a.add(add -> add.index(index).alias(writeAlias).isWriteIndex(true))));
+        for (String old : oldRead) {
+            if (old.equals(readAlias)) {
+                actions.add(Action.of(a -> a.removeIndex(r -> r.index(old))));
+            } else {
+                actions.add(Action.of(a -> a.remove(r -> r.index(old).alias(readAlias))));
+            }
+        }
+        for (String old : oldWrite) {
+            if (!old.equals(readAlias)) {
+                actions.add(Action.of(a -> a.remove(r -> r.index(old).alias(writeAlias))));
+            }
+        }
+        esClient.indices().updateAliases(u -> u.actions(actions));
+        rebuildingIndex = null;
+        routedCache.clear();
+        log.info("索引别名{}、{}已切换到{}，原索引: {}", readAlias, writeAlias, index, oldRead);
+
+        if (deletePrevious) {
+            for (String old : oldRead) {
+                if (!old.equals(readAlias) && !old.equals(index)) {
+                    // 别名已切换，删除失败不影响新索引
+                    try {
+                        esClient.indices().delete(d -> d.index(old));
+                        log.info("已删除旧索引{}", old);
+                    } catch (Exception e) {
+                        log.error("删除旧索引{}失败", old, e);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void abortRebuild(String index) {
+        rebuildingIndex = null;
+        routedCache.remove(index);
+        try {
+            esClient.indices().delete(d -> d.index(index));
+            log.info("已放弃重建并删除索引{}", index);
+        } catch (Exception e) {
+            log.error("删除未完成的索引{}失败", index, e);
+        }
+    }
+
+    /**
+     * 别名或索引对应的物理索引，不存在时返回空列表
+     */
+    private List<String> resolve(String name) throws IOException {
+        if (!esClient.indices().exists(e -> e.index(name)).value()) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(esClient.indices().get(g -> g.index(name)).result().keySet());
+    }
+
+    private int nextVersion() throws IOException {
+        String prefix = getReadAlias() + VERSION_INFIX;
+        int max = 0;
+        for (String name : esClient.indices().get(g -> g.index(prefix + "*")).result().keySet()) {
+            try {
+                max = Math.max(max, Integer.parseInt(name.substring(prefix.length())));
+            } catch (NumberFormatException e) {
+                log.warn("忽略无法识别版本号的索引{}", name);
+            }
+        }
+        return max + 1;
+    }
+
+    private String createIndex(String index) throws IOException {
+        String mappingJson = readMapping();
+        esClient.indices().create(c -> c
+            .index(index)
+            .withJson(new StringReader(mappingJson)));
+        return index;
+    }
+
+    private String readMapping() throws IOException {
+        Resource resource = resourceLoader.getResource("classpath:" + mappingFile);
+        try (InputStream in = resource.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 线上索引的映射版本与配置的映射文件不一致时提示重建；映射只能通过重建索引整体替换，启动时不自动迁移
+     */
+    private void checkMappingVersion(String readAlias) throws IOException {
+        String mappingJson = readMapping();
+        int expected = mappingVersion(CreateIndexRequest.of(c -> c
+            .index(readAlias)
+            .withJson(new StringReader(mappingJson))).mappings());
+        GetMappingResponse response = esClient.indices().getMapping(g -> g.index(readAlias));
+        for (Map.Entry<String, IndexMappingRecord> entry : response.result().entrySet()) {
+            int live = mappingVersion(entry.getValue().mappings());
+            if (live != expected) {
+                log.warn("索引{}的映射为第{}版，{}为第{}版，请调用POST /doc/batch/reindex重建索引后生效",
+                    entry.getKey(), live, mappingFile, expected);
+            }
+        }
+    }
+
+    private static int mappingVersion(TypeMapping mappings) {
+        JsonData version = mappings == null ? null : mappings.meta().get(MAPPING_VERSION);
+        return version == null ? 1 : version.to(Integer.class);
+    }
+
+    private void putSettings(String index, String refreshInterval, String replicas) throws IOException {
+        esClient.indices().putSettings(p -> p
+            .index(index)
+            .settings(s -> s
+                .refreshInterval(t -> t.time(refreshInterval))
+                .numberOfReplicas(replicas)));
+    }
+
+    /**
+     * 合并为单个段，异步执行并轮询任务状态，避免长时间占用HTTP连接；超时后不再等待，合并在后台继续
+     */
+    private void forceMerge(String index) throws IOException {
+        ForcemergeResponse response = esClient.indices().forcemerge(f -> f
+            .index(index)
+            .maxNumSegments(1L)
+            .waitForCompletion(false));
+        String task = response.task();
+        if (task == null) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + forceMergeTimeoutMs;
+        while (!esClient.tasks().get(g -> g.taskId(task)).completed()) {
+            if (System.currentTimeMillis() > deadline) {
+                log.warn("索引{}段合并超过{}ms仍未完成，不再等待", index, forceMergeTimeoutMs);
+                return;
+            }
+            try {
+                Thread.sleep(TASK_POLL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("等待段合并时被中断", e);
+            }
+        }
+        log.info("索引{}段合并完成", index);
+    }
+}
@@ -0,0 +1,185 @@
+package top.lvpi.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import top.lvpi.mapper.DocMapper;
+import top.lvpi.mapper.EsOutboxMapper;
+import top.lvpi.model.dto.es.BulkIndexResult;
+import top.lvpi.model.entity.Doc;
+import top.lvpi.model.entity.EsOutbox;
+import top.lvpi.service.DocSectionEsService;
+import top.lvpi.service.EsOutboxService;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ES同步发件箱
+ * 业务事务只写入发件箱记录，由定时任务批量同步到ES。同步时按数据库中的当前状态写入或删除索引，
+ * 不依赖记录的先后顺序，重复执行结果相同，因此同一实体的多条记录可以合并，失败后也可以放心重试
+ */
+@Slf4j
+@Service
+public class EsOutboxServiceImpl extends ServiceImpl<EsOutboxMapper, EsOutbox> implements EsOutboxService {
+
+    /**
+     * 失败原因的最大长度，与表字段一致
+     */
+    private static final int MAX_ERROR_LENGTH = 512;
+
+    /**
+     * 延迟注入：主题、章节等业务服务依赖发件箱，而索引服务又依赖这些服务
+     */
+    @Lazy
+    @Autowired
+    private DocSectionEsService docSectionEsService;
+
+    @Autowired
+    private DocMapper docMapper;
+
+    @Value("${es.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${es.outbox.retry-backoff-seconds:5}")
+    private long retryBackoffSeconds;
+
+    @Value("${es.outbox.max-backoff-seconds:600}")
+    private long maxBackoffSeconds;
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String entityType, Long entityId, String op) {
+        EsOutbox outbox = new EsOutbox();
+        outbox.setEntityType(entityType);
+        outbox.setEntityId(entityId);
+        outbox.setOp(op);
+        baseMapper.insert(outbox);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${es.outbox.interval-ms:1000}", initialDelayString = "${es.outbox.initial-delay-ms:10000}")
+    public int relay() {
+        List<EsOutbox> pending = baseMapper.selectPending(batchSize);
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        long start = System.currentTimeMillis();
+
+        // 按实体合并，保留写入顺序
+        Map<String, List<EsOutbox>> sections = new LinkedHashMap<>();
+        Map<String, List<EsOutbox>> docs = new LinkedHashMap<>();
+        for (EsOutbox outbox : pending) {
+            Map<String, List<EsOutbox>> group = EsOutbox.TYPE_DOC.equals(outbox.getEntityType()) ? docs : sections;
+            group.computeIfAbsent(outbox.getEntityId().toString(), k -> new ArrayList<>()).add(outbox);
+        }
+
+        List<Long> done = new ArrayList<>();
+        int failed = 0;
+        if (!sections.isEmpty()) {
+            failed += relaySections(sections, done);
+        }
+        for (Map.Entry<String, List<EsOutbox>> entry : docs.entrySet()) {
+            try {
+                relayDoc(Long.valueOf(entry.getKey()), entry.getValue());
+                entry.getValue().forEach(outbox -> done.add(outbox.getId()));
+            } catch (Exception e) {
+                log.warn("图书ID：{}的索引同步失败", entry.getKey(), e);
+                markFailed(entry.getValue(), e.getMessage());
+                failed++;
+            }
+        }
+        if (!done.isEmpty()) {
+            baseMapper.deleteBatchIds(done);
+        }
+
+        log.info("ES同步发件箱处理{}条记录，合并为章节{}个、图书{}本，失败{}个，耗时{}ms", pending.size(),
+                sections.size(), docs.size(), failed, System.currentTimeMillis() - start);
+        return pending.size();
+    }
+
+    /**
+     * 同步一批章节，成功的记录ID加入done
+     *
+     * @return 失败的章节数
+     */
+    private int relaySections(Map<String, List<EsOutbox>> sections, List<Long> done) {
+        List<Long> sectionIds = new ArrayList<>(sections.size());
+        sections.keySet().forEach(id -> sectionIds.add(Long.valueOf(id)));
+        BulkIndexResult result;
+        try {
+            result = docSectionEsService.syncSections(sectionIds);
+        } catch (Exception e) {
+            log.warn("{}个章节的索引同步失败", sectionIds.size(), e);
+            sections.values().forEach(outboxes -> markFailed(outboxes, e.getMessage()));
+            return sections.size();
+        }
+
+        // 重建期间一个章节写入多个索引，任一失败都需要重试
+        Map<String, String> failures = new HashMap<>();
+        for (BulkIndexResult.Failure failure : result.getFailures()) {
+            failures.putIfAbsent(failure.getId(), failure.getStatus() + " " + failure.getReason());
+        }
+        for (Map.Entry<String, List<EsOutbox>> entry : sections.entrySet()) {
+            String error = failures.get(entry.getKey());
+            if (error == null) {
+                entry.getValue().forEach(outbox -> done.add(outbox.getId()));
+            } else {
+                markFailed(entry.getValue(), error);
+            }
+        }
+        if (!failures.isEmpty()) {
+            log.warn("{}个章节的索引同步失败，首个章节ID：{}，原因：{}", failures.size(),
+                    failures.keySet().iterator().next(), failures.values().iterator().next());
+        }
+        return failures.size();
+    }
+
+    /**
+     * 图书已删除时删除其全部章节的索引；否则有UPSERT时按校验值增量同步章节，只有METADATA时只更新图书信息字段
+     */
+    private void relayDoc(Long docId, List<EsOutbox> outboxes) {
+        Doc doc = docMapper.selectById(docId);
+        if (doc == null || Integer.valueOf(1).equals(doc.getIsDeleted())) {
+            docSectionEsService.deleteByDocId(docId.toString());
+            return;
+        }
+        boolean metadataOnly = outboxes.stream().allMatch(outbox -> EsOutbox.OP_METADATA.equals(outbox.getOp()));
+        if (metadataOnly) {
+            docSectionEsService.updateDocMetadata(docId);
+            return;
+        }
+        BulkIndexResult result = docSectionEsService.reindexDoc(docId);
+        if (result.getFailed() > 0) {
+            BulkIndexResult.Failure first = result.getFailures().get(0);
+            throw new IllegalStateException(String.format("%d条章节索引失败，章节ID:%s，原因：%s",
+                    result.getFailed(), first.getId(), first.getReason()));
+        }
+        // 增量同步跳过了内容未变化的章节，其中的图书信息需要单独更新
+        if (outboxes.stream().anyMatch(outbox -> EsOutbox.OP_METADATA.equals(outbox.getOp()))) {
+            docSectionEsService.updateDocMetadata(docId);
+        }
+    }
+
+    private void markFailed(List<EsOutbox> outboxes, String error) {
+        int attempts = outboxes.stream().mapToInt(EsOutbox::getAttempts).max().orElse(0);
+        // 按失败次数指数退避，ES长时间不可用时也不会放弃记录
+        long delay = maxBackoffSeconds;
+        if (attempts < 30) {
+            delay = Math.min(retryBackoffSeconds << attempts, maxBackoffSeconds);
+        }
+        List<Long> ids = new ArrayList<>(outboxes.size());
+        outboxes.forEach(outbox -> ids.add(outbox.getId()));
+        baseMapper.markFailed(ids, StringUtils.abbreviate(String.valueOf(error), MAX_ERROR_LENGTH), delay);
+    }
+}
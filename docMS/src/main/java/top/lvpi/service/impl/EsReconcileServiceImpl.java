@@ -0,0 +1,228 @@
+package top.lvpi.service.impl;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.aggregations.CompositeAggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.CompositeAggregationSource;
+import co.elastic.clients.elasticsearch._types.aggregations.CompositeBucket;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import top.lvpi.mapper.DocMapper;
+import top.lvpi.mapper.DocSectionMapper;
+import top.lvpi.model.dto.es.DocChecksum;
+import top.lvpi.model.dto.es.ReconcileResult;
+import top.lvpi.model.entity.Doc;
+import top.lvpi.model.entity.EsOutbox;
+import top.lvpi.service.EsIndexService;
+import top.lvpi.service.EsOutboxService;
+import top.lvpi.service.EsReconcileService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 数据库与ES一致性核对
+ * 两侧都按图书汇总章节数与content_hash之和：数据库一侧由SQL聚合，ES一侧由按图书ID的composite聚合分页取回。
+ * 每页之间暂停，避免与在线查询争抢资源；只把不一致的图书交给发件箱，不做全量重建
+ */
+@Slf4j
+@Service
+public class EsReconcileServiceImpl implements EsReconcileService {
+
+    /**
+     * 每个事务写入的发件箱记录数
+     */
+    private static final int ENQUEUE_BATCH_SIZE = 500;
+
+    @Autowired
+    private ElasticsearchClient esClient;
+
+    @Autowired
+    private EsIndexService esIndexService;
+
+    @Autowired
+    private EsOutboxService esOutboxService;
+
+    @Autowired
+    private DocSectionMapper docSectionMapper;
+
+    @Autowired
+    private DocMapper docMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${es.reconcile.enabled:true}")
+    private boolean enabled;
+
+    @Value("${es.reconcile.page-size:1000}")
+    private int pageSize;
+
+    @Value("${es.reconcile.pause-ms:200}")
+    private long pauseMs;
+
+    @Value("${es.reconcile.max-repairs:2000}")
+    private int maxRepairs;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Scheduled(cron = "${es.reconcile.cron:0 30 3 * * *}")
+    public void scheduledReconcile() {
+        if (enabled) {
+            reconcile();
+        }
+    }
+
+    @Override
+    public ReconcileResult reconcile() {
+        if (esIndexService.isRebuilding()) {
+            log.info("正在重建索引，跳过一致性核对");
+            return null;
+        }
+        if (!running.compareAndSet(false, true)) {
+            log.info("一致性核对正在进行，跳过");
+            return null;
+        }
+        try {
+            return doReconcile();
+        } catch (IOException e) {
+            log.error("一致性核对失败", e);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("一致性核对被中断");
+            return null;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ReconcileResult doReconcile() throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        ReconcileResult result = new ReconcileResult();
+
+        // ES一侧：图书ID -> {章节数, 校验值之和}
+        Map<String, long[]> indexed = loadIndexedChecksums();
+
+        List<Long> repairs = new ArrayList<>();
+        Long afterDocId = 0L;
+        while (true) {
+            List<DocChecksum> page = docSectionMapper.selectDocChecksums(afterDocId, pageSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            List<Long> consistent = new ArrayList<>();
+            for (DocChecksum expected : page) {
+                result.setCheckedDocs(result.getCheckedDocs() + 1);
+                long[] actual = indexed.remove(expected.getDocId().toString());
+                if (actual == null) {
+                    result.setMissingDocs(result.getMissingDocs() + 1);
+                    repairs.add(expected.getDocId());
+                } else if (actual[0] != expected.getSectionCount() || actual[1] != expected.getChecksum()) {
+                    result.setMismatchedDocs(result.getMismatchedDocs() + 1);
+                    repairs.add(expected.getDocId());
+                } else {
+                    consistent.add(expected.getDocId());
+                }
+            }
+            markIndexed(consistent);
+            afterDocId = page.get(page.size() - 1).getDocId();
+            if (page.size() < pageSize) {
+                break;
+            }
+            Thread.sleep(pauseMs);
+        }
+
+        // 剩下的是数据库中已删除或没有章节的图书，同步时按数据库状态删除
+        for (String docId : indexed.keySet()) {
+            try {
+                repairs.add(Long.valueOf(docId));
+                result.setExtraDocs(result.getExtraDocs() + 1);
+            } catch (NumberFormatException e) {
+                log.warn("忽略ES中无法识别的图书ID：{}", docId);
+            }
+        }
+
+        List<Long> submitted = repairs.size() > maxRepairs ? repairs.subList(0, maxRepairs) : repairs;
+        for (int i = 0; i < submitted.size(); i += ENQUEUE_BATCH_SIZE) {
+            List<Long> batch = submitted.subList(i, Math.min(i + ENQUEUE_BATCH_SIZE, submitted.size()));
+            transactionTemplate.executeWithoutResult(status ->
+                batch.forEach(docId -> esOutboxService.enqueue(EsOutbox.TYPE_DOC, docId, EsOutbox.OP_UPSERT)));
+        }
+        result.setRepairedDocs(submitted.size());
+        result.setElapsedMs(System.currentTimeMillis() - start);
+
+        if (repairs.size() > submitted.size()) {
+            log.warn("不一致的图书{}本超过单次上限{}，其余留到下次核对", repairs.size(), maxRepairs);
+        }
+        log.info("一致性核对完成：图书{}本，不一致{}本，ES缺失{}本，ES多余{}本，提交同步{}本，耗时{}ms",
+                result.getCheckedDocs(), result.getMismatchedDocs(), result.getMissingDocs(), result.getExtraDocs(),
+                result.getRepairedDocs(), result.getElapsedMs());
+        return result;
+    }
+
+    /**
+     * 分页取回ES中各图书的章节数与校验值之和
+     */
+    private Map<String, long[]> loadIndexedChecksums() throws IOException, InterruptedException {
+        String index = esIndexService.getReadAlias();
+        Map<String, long[]> indexed = new HashMap<>();
+        Map<String, FieldValue> afterKey = null;
+        while (true) {
+            Map<String, FieldValue> after = afterKey;
+            SearchResponse<Void> response = esClient.search(s -> s
+                .index(index)
+                .size(0)
+                .trackTotalHits(t -> t.enabled(false))
+                .aggregations("docs", a -> a
+                    .composite(c -> {
+                        c.size(pageSize)
+                            .sources(Collections.singletonList(Collections.singletonMap("doc_id",
+                                CompositeAggregationSource.of(src -> src.terms(t -> t.field("book_id"))))));
+                        if (after != null) {
+                            c.after(after);
+                        }
+                        return c;
+                    })
+                    .aggregations("checksum", sum -> sum.sum(f -> f.field("content_hash")))),
+                Void.class);
+
+            CompositeAggregate docs = response.aggregations().get("docs").composite();
+            List<CompositeBucket> buckets = docs.buckets().array();
+            for (CompositeBucket bucket : buckets) {
+                // 校验值都小于2^32，一本书的和远小于2^53，double求和没有精度损失
+                long checksum = Math.round(bucket.aggregations().get("checksum").sum().value());
+                indexed.put(bucket.key().get("doc_id").stringValue(), new long[]{bucket.docCount(), checksum});
+            }
+            afterKey = docs.afterKey();
+            if (buckets.size() < pageSize || afterKey == null || afterKey.isEmpty()) {
+                return indexed;
+            }
+            Thread.sleep(pauseMs);
+        }
+    }
+
+    /**
+     * 两侧一致的图书补上已索引标记
+     */
+    private void markIndexed(List<Long> docIds) {
+        if (docIds.isEmpty()) {
+            return;
+        }
+        LambdaUpdateWrapper<Doc> updateWrapper = new LambdaUpdateWrapper<>();
+        updateWrapper.in(Doc::getId, docIds)
+                .set(Doc::getIsIndexed, 1);
+        docMapper.update(null, updateWrapper);
+    }
+}
@@ -13,11 +13,13 @@ import top.lvpi.service.LpFileService;
 import top.lvpi.service.DocFileService;
 import top.lvpi.service.DocService;
 import top.lvpi.utils.FileUtils;
+import top.lvpi.utils.PDFUtils;
+import top.lvpi.utils.PdfSource;
+import top.lvpi.utils.PdfSourceFactory;
 import io.minio.*;
 import io.minio.messages.Item;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
-import org.apache.pdfbox.pdmodel.PDDocument;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -48,6 +50,9 @@ public class FileServiceImpl implements FileService {
     @Autowired
     private DocFileService docFileService;
 
+    @Autowired
+    private PdfSourceFactory pdfSourceFactory;
+
     @Value("${minio.bucketName}")
     private String bucketName;
 
@@ -145,8 +150,8 @@ public class FileServiceImpl implements FileService {
                     int pageCount = 0;
                     if (existingFileName.toLowerCase().endsWith(".pdf")) {
                         try (InputStream inputStream = getFileInputStream(existingFileName);
-                             PDDocument document = PDDocument.load(inputStream)) {
-                            pageCount = document.getNumberOfPages();
+                             PdfSource source = pdfSourceFactory.open(inputStream)) {
+                            pageCount = PDFUtils.getPageCount(source);
                         }
                     }
                     return new FileUploadResult(existingFileName, pageCount, 
@@ -162,8 +167,8 @@ public class FileServiceImpl implements FileService {
             int pageCount = 0;
             if ("application/pdf".equals(file.getContentType())) {
                 try (InputStream inputStream = file.getInputStream();
-                     PDDocument document = PDDocument.load(inputStream)) {
-                    pageCount = document.getNumberOfPages();
+                     PdfSource source = pdfSourceFactory.open(inputStream)) {
+                    pageCount = PDFUtils.getPageCount(source);
                 }
             }
             
@@ -210,8 +215,8 @@ public class FileServiceImpl implements FileService {
                     int pageCount = 0;
                     if (existingFileName.toLowerCase().endsWith(".pdf")) {
                         try (InputStream inputStream = getFileInputStream(existingFileName);
-                             PDDocument document = PDDocument.load(inputStream)) {
-                            pageCount = document.getNumberOfPages();
+                             PdfSource source = pdfSourceFactory.open(inputStream)) {
+                            pageCount = PDFUtils.getPageCount(source);
                         }
                     }
                     return new FileUploadResult(existingFileName, pageCount, 
@@ -226,9 +231,8 @@ public class FileServiceImpl implements FileService {
             // 如果是PDF文件，获取页数
             int pageCount = 0;
             if (file.getName().toLowerCase().endsWith(".pdf")) {
-                try (FileInputStream fis = new FileInputStream(file);
-                     PDDocument document = PDDocument.load(fis)) {
-                    pageCount = document.getNumberOfPages();
+                try (PdfSource source = pdfSourceFactory.open(file)) {
+                    pageCount = PDFUtils.getPageCount(source);
                 }
             }
             
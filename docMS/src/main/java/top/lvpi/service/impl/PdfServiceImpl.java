@@ -1,24 +1,36 @@
 package top.lvpi.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import top.lvpi.common.BusinessException;
 import top.lvpi.common.ErrorCode;
 import top.lvpi.model.dto.doc.DocUpdateRequest;
+import top.lvpi.model.dto.pdf.PdfExtractOptions;
+import top.lvpi.model.dto.pdf.PdfIngestResult;
+import top.lvpi.model.dto.pdf.PdfLoadMode;
 import top.lvpi.model.entity.Doc;
-import top.lvpi.model.entity.DocSection;
 import top.lvpi.service.DocService;
 import top.lvpi.service.DocSectionService;
 import top.lvpi.service.FileService;
+import top.lvpi.service.ImgService;
 import top.lvpi.service.PdfService;
+import top.lvpi.utils.ExtractBudget;
 import top.lvpi.utils.PDFUtils;
+import top.lvpi.utils.PdfSource;
+import top.lvpi.utils.PdfSourceFactory;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 @Service
 @Slf4j
@@ -33,9 +45,71 @@ public class PdfServiceImpl implements PdfService {
     @Autowired
     private DocSectionService docSectionService;
 
+    @Autowired
+    private ImgService imgService;
+
+    @Autowired
+    private PdfSourceFactory pdfSourceFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("pdfExtractPool")
+    private ForkJoinPool pdfExtractPool;
+
+    /**
+     * 是否启用页级并行提取
+     */
+    @Value("${pdf.extract.parallel:true}")
+    private boolean parallelEnabled;
+
+    /**
+     * 并行提取时每个任务处理的页数
+     */
+    @Value("${pdf.extract.chunk-size:50}")
+    private int chunkSize;
+
+    /**
+     * 章节批量写入数据库的条数
+     */
+    @Value("${pdf.extract.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 每提取多少页提交一次章节并记录检查点
+     */
+    @Value("${pdf.extract.checkpoint-pages:200}")
+    private int checkpointPages;
+
+    /**
+     * 是否复用相同内容文件的提取结果
+     */
+    @Value("${pdf.extract.cache-enabled:true}")
+    private boolean cacheEnabled;
+
+    /**
+     * 单页文本提取时限（毫秒），小于等于0表示不限
+     */
+    @Value("${pdf.extract.page-timeout-ms:30000}")
+    private long pageTimeoutMs;
+
+    /**
+     * 单个文档文本提取时限（毫秒），小于等于0表示不限
+     */
+    @Value("${pdf.extract.doc-timeout-ms:1800000}")
+    private long docTimeoutMs;
+
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public String extractText(String fileName, Long docId, String title) {
+        return extractText(fileName, docId, title, null);
+    }
+
+    /**
+     * 不使用整体事务：章节按页码窗口分批提交并记录检查点，中断、取消或超时后可从检查点继续
+     */
+    @Override
+    public String extractText(String fileName, Long docId, String title, PdfExtractOptions options) {
         if (StringUtils.isBlank(fileName)) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件名不能为空");
         }
@@ -43,46 +117,180 @@ public class PdfServiceImpl implements PdfService {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "图书ID不合法");
         }
 
-        try {
-            // 获取PDF文件输入流
-            InputStream pdfStream = fileService.getFileInputStream(fileName);
-            
-            // 提取文本内容
-            List<DocSection> sections = PDFUtils.extractTextToSections(pdfStream, docId, title);
-            
-            // 保存章节信息
-            if (sections != null && !sections.isEmpty()) {
-                for (DocSection section : sections) {
-                    docSectionService.save(section);
-                }
-            }
+        // 相同内容的文件已提取过时直接复制章节，跳过PDF解析
+        String cached = copyFromSameFile(fileName, docId, title);
+        if (cached != null) {
+            return cached;
+        }
+
+        PdfLoadMode loadMode = options == null ? null : options.getLoadMode();
+        // 文档时限从下载文件开始计算
+        ExtractBudget budget = ExtractBudget.start(pageTimeoutMs, docTimeoutMs,
+                options == null ? null : options.getCancellationToken());
+
+        // 只读取一次MinIO对象，按加载方式放入内存或写入临时文件
+        try (InputStream pdfStream = fileService.getFileInputStream(fileName);
+             PdfSource source = pdfSourceFactory.open(pdfStream, loadMode)) {
+            return extractText(source, docId, title, budget);
+        } catch (ExtractBudget.AbortedException e) {
+            log.warn("图书 {} 文本提取中止：{}，已提交的页可在下次提取时继续", docId, e.getMessage());
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, e.getMessage());
+        } catch (IOException e) {
+            log.error("提取PDF文本失败", e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "提取PDF文本失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 从数据源提取文本，保存章节并更新图书信息
+     * 先重试上次超时放弃的页，再从图书记录的检查点之后继续提取，最后一个窗口的章节与图书信息在同一事务中提交。
+     * 仍有失败页时图书不标记为已提取，失败页记录在图书上，下次提取时只重试这些页
+     */
+    private String extractText(PdfSource source, Long docId, String title, ExtractBudget budget) throws IOException {
+        // 图书没有封面时，在同一次加载中导出首页封面
+        Doc doc = docService.getDocById(docId);
+        boolean needCover = doc != null && StringUtils.isBlank(doc.getPicUrl());
+
+        // 上次中断时已完成的页码
+        int checkpointPage = doc != null && doc.getExtractedPage() != null ? doc.getExtractedPage() : 0;
+        if (checkpointPage > 0) {
+            log.info("图书 {} 从第 {} 页继续提取文本", docId, checkpointPage + 1);
+        }
+
+        // 提取页数、文本内容与封面，章节边提取边按页码窗口提交
+        DocSectionBatchWriter sectionWriter = new DocSectionBatchWriter(docSectionService, transactionTemplate,
+                batchSize, checkpointPages, checkpointPage,
+                (page, failed) -> updateExtractedPage(docId, page, failed));
+
+        // 上次超时放弃的页，重试出的章节与仍然失败的页随下一个检查点提交
+        List<Integer> retryPages = doc != null ? parsePages(doc.getFailedPages()) : Collections.emptyList();
+        if (!retryPages.isEmpty()) {
+            log.info("图书 {} 重试上次超时未提取的 {} 页：{}", docId, retryPages.size(), retryPages);
+            PDFUtils.ingestPages(source, docId, title, retryPages, sectionWriter, budget);
+        }
+
+        PdfIngestResult ingestResult = PDFUtils.ingest(source, docId, title, needCover, checkpointPage + 1,
+                chunkSize, parallelEnabled ? pdfExtractPool : null, sectionWriter, budget);
+        List<Integer> failedPages = sectionWriter.getFailedPages();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            sectionWriter.flush();
 
             // 更新图书信息
-            Doc doc = docService.getDocById(docId);
             if (doc != null) {
                 DocUpdateRequest updateRequest = new DocUpdateRequest();
                 updateRequest.setId(docId);
-                
+
                 // 更新页数
-                try {
-                    int pageCount = PDFUtils.getPageCount(fileService.getFileInputStream(fileName));
-                    updateRequest.setPageSize(pageCount);
-                } catch (Exception e) {
-                    log.error("获取PDF页数失败", e);
+                updateRequest.setPageSize(ingestResult.getPageCount());
+
+                // 保存封面
+                if (ingestResult.getCoverImage() != null) {
+                    Long imgId = imgService.saveImage(ingestResult.getCoverImage(), docId);
+                    updateRequest.setPicUrl("img/" + imgId);
                 }
-                
-                // 更新文本提取状态
-                updateRequest.setIsExtracted(1);
-                
+
+                // 更新文本提取状态，有失败页时保持未完成，允许再次提取
+                updateRequest.setIsExtracted(failedPages.isEmpty() ? 1 : 0);
+
                 // 保存更新
                 docService.updateDoc(updateRequest);
+                updateExtractedPage(docId, ingestResult.getPageCount(), failedPages);
+
+                // 记录扫描页占比，断点续提时只统计本次处理的页
+                if (ingestResult.getProcessedPageCount() > 0) {
+                    double scannedRatio = (double) ingestResult.getImageOnlyPageCount()
+                            / ingestResult.getProcessedPageCount();
+                    docService.update(new LambdaUpdateWrapper<Doc>()
+                            .eq(Doc::getId, docId)
+                            .set(Doc::getScannedRatio, scannedRatio));
+                }
             }
+        });
 
-            pdfStream.close();
-            return "文本提取成功，共提取 " + sections.size() + " 个章节";
-        } catch (IOException e) {
-            log.error("提取PDF文本失败", e);
-            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "提取PDF文本失败：" + e.getMessage());
+        if (ingestResult.getImageOnlyPageCount() > 0) {
+            log.info("图书 {} 共有 {} 页没有文本层，已跳过文本提取", docId, ingestResult.getImageOnlyPageCount());
+        }
+        if (!failedPages.isEmpty()) {
+            log.warn("图书 {} 有 {} 页超过单页时限未能提取：{}", docId, failedPages.size(), failedPages);
+            return "文本提取未完成，共提取 " + sectionWriter.getWritten() + " 个章节，"
+                    + failedPages.size() + " 页超时未提取：" + failedPages + "，再次提取时只重试这些页";
+        }
+        return "文本提取成功，共提取 " + sectionWriter.getWritten() + " 个章节";
+    }
+
+    /**
+     * 按文件内容复用提取结果：存在存储名或MD5相同且已提取的图书时，整体复制其章节到当前图书
+     *
+     * @return 处理结果，未命中时返回null
+     */
+    private String copyFromSameFile(String fileName, Long docId, String title) {
+        if (!cacheEnabled) {
+            return null;
+        }
+        Doc doc = docService.getDocById(docId);
+        // 已有部分提取结果的图书继续断点提取，不复制
+        if (doc == null || (doc.getExtractedPage() != null && doc.getExtractedPage() > 0)) {
+            return null;
+        }
+        Long sourceDocId = docSectionService.findExtractedDocIdBySameFile(fileName, docId);
+        if (sourceDocId == null) {
+            return null;
+        }
+        Doc sourceDoc = docService.getDocById(sourceDocId);
+        if (sourceDoc == null) {
+            return null;
+        }
+
+        Integer copied = transactionTemplate.execute(status -> {
+            int count = docSectionService.copySections(sourceDocId, docId, title);
+
+            DocUpdateRequest updateRequest = new DocUpdateRequest();
+            updateRequest.setId(docId);
+            updateRequest.setPageSize(sourceDoc.getPageSize());
+            // 当前图书没有封面时复用源图书的封面
+            if (StringUtils.isBlank(doc.getPicUrl()) && StringUtils.isNotBlank(sourceDoc.getPicUrl())) {
+                updateRequest.setPicUrl(sourceDoc.getPicUrl());
+            }
+            updateRequest.setIsExtracted(1);
+            docService.updateDoc(updateRequest);
+            if (sourceDoc.getPageSize() != null) {
+                updateExtractedPage(docId, sourceDoc.getPageSize(), Collections.emptyList());
+            }
+            if (sourceDoc.getScannedRatio() != null) {
+                docService.update(new LambdaUpdateWrapper<Doc>()
+                        .eq(Doc::getId, docId)
+                        .set(Doc::getScannedRatio, sourceDoc.getScannedRatio()));
+            }
+            return count;
+        });
+        log.info("图书 {} 与图书 {} 文件内容相同，复制了 {} 个章节", docId, sourceDocId, copied);
+        return "文本提取成功（复用相同文件的提取结果），共提取 " + copied + " 个章节";
+    }
+
+    /**
+     * 记录已完成文本提取的最后页码与仍未能提取的页码
+     */
+    private void updateExtractedPage(Long docId, int page, List<Integer> failedPages) {
+        docService.update(new LambdaUpdateWrapper<Doc>()
+                .eq(Doc::getId, docId)
+                .set(Doc::getExtractedPage, page)
+                .set(Doc::getFailedPages, failedPages.isEmpty() ? null : StringUtils.join(failedPages, ',')));
+    }
+
+    /**
+     * 解析逗号分隔的页码，忽略无法识别的部分
+     */
+    private static List<Integer> parsePages(String pages) {
+        if (StringUtils.isBlank(pages)) {
+            return Collections.emptyList();
+        }
+        List<Integer> result = new ArrayList<>();
+        for (String page : StringUtils.split(pages, ',')) {
+            if (StringUtils.isNumeric(page.trim())) {
+                result.add(Integer.parseInt(page.trim()));
+            }
         }
+        return result;
     }
-} 
\ No newline at end of file
+}
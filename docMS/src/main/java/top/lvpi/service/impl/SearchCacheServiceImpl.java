@@ -0,0 +1,309 @@
+package top.lvpi.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import top.lvpi.service.SearchCacheService;
+import top.lvpi.utils.SingleFlight;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+@Slf4j
+@Service
+public class SearchCacheServiceImpl implements SearchCacheService {
+
+    private static final String KEY_PREFIX = "search:cache:";
+
+    /**
+     * 索引代数，所有实例共用
+     */
+    private static final String GENERATION_KEY = KEY_PREFIX + "generation";
+
+    /**
+     * 自由文本关键词的条件名，规范化时合并其中的空白
+     */
+    private static final String KEYWORD = "keyword";
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${search.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.cache.local-max-entries:1000}")
+    private int localMaxEntries;
+
+    @Value("${search.cache.local-ttl-ms:30000}")
+    private long localTtlMs;
+
+    @Value("${search.cache.redis-ttl-seconds:600}")
+    private long redisTtlSeconds;
+
+    /**
+     * 从Redis重新读取索引代数的间隔，其他实例的写入最多延迟这么久才让本实例的进程内缓存失效
+     */
+    @Value("${search.cache.generation-refresh-ms:1000}")
+    private long generationRefreshMs;
+
+    /**
+     * 代数变化后这段时间内的查询结果不缓存：ES按刷新间隔才能查到新写入的文档，期间的结果可能仍是旧的
+     */
+    @Value("${search.cache.write-grace-ms:1000}")
+    private long writeGraceMs;
+
+    /**
+     * 是否合并缓存未命中时并发的相同查询，缓存关闭时同样生效
+     */
+    @Value("${search.cache.coalesce:true}")
+    private boolean coalesceEnabled;
+
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    /**
+     * 按访问顺序排列，超过容量时淘汰最久未访问的条目
+     */
+    private Map<String, LocalEntry> local;
+
+    private volatile long generation = -1;
+
+    private volatile long generationCheckedAt;
+
+    private volatile long generationChangedAt;
+
+    private Counter localHits;
+
+    private Counter localMisses;
+
+    private Counter redisHits;
+
+    private Counter redisMisses;
+
+    @PostConstruct
+    public void init() {
+        local = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LocalEntry> eldest) {
+                return size() > localMaxEntries;
+            }
+        };
+        localHits = counter("local", "hit");
+        localMisses = counter("local", "miss");
+        redisHits = counter("redis", "hit");
+        redisMisses = counter("redis", "miss");
+        Gauge.builder("search.cache.local.size", this, cache -> cache.localSize())
+            .description("进程内检索缓存的条目数")
+            .register(meterRegistry);
+        FunctionCounter.builder("search.coalesce.requests", singleFlight, SingleFlight::leaders)
+            .description("合并相同查询：实际执行与等待共享结果的次数")
+            .tag("role", "leader")
+            .register(meterRegistry);
+        FunctionCounter.builder("search.coalesce.requests", singleFlight, SingleFlight::followers)
+            .description("合并相同查询：实际执行与等待共享结果的次数")
+            .tag("role", "follower")
+            .register(meterRegistry);
+        Gauge.builder("search.coalesce.share.ratio", singleFlight, SingleFlight::shareRatio)
+            .description("等待共享结果的查询占缓存未命中查询的比例")
+            .register(meterRegistry);
+        Gauge.builder("search.coalesce.in.flight", singleFlight, SingleFlight::inFlight)
+            .description("正在执行的不同查询数")
+            .register(meterRegistry);
+        log.info("检索结果缓存: {}，进程内最多{}条/{}ms，Redis {}秒，合并相同查询: {}", enabled ? "启用" : "关闭",
+            localMaxEntries, localTtlMs, redisTtlSeconds, coalesceEnabled ? "启用" : "关闭");
+    }
+
+    @Override
+    public <T> T get(String namespace, Map<String, ?> query, TypeReference<T> type, Supplier<T> loader,
+                     Predicate<T> cacheable) {
+        String digest;
+        try {
+            digest = namespace + ":" + DigestUtils.md5DigestAsHex(canonicalize(query).getBytes(StandardCharsets.UTF_8));
+        } catch (JsonProcessingException e) {
+            log.warn("检索条件无法序列化，不使用缓存: {}", query, e);
+            return loader.get();
+        }
+        if (!enabled) {
+            return coalesce(digest, loader);
+        }
+        long currentGeneration = currentGeneration();
+        if (currentGeneration < 0) {
+            // 不知道当前代数时无法判断缓存是否过期
+            return coalesce(digest, loader);
+        }
+        String key = KEY_PREFIX + currentGeneration + ":" + digest;
+
+        T value = localGet(key);
+        if (value != null) {
+            localHits.increment();
+            return value;
+        }
+        localMisses.increment();
+
+        try {
+            Object json = redisTemplate.opsForValue().get(key);
+            if (json != null) {
+                value = objectMapper.readValue(json.toString(), type);
+                redisHits.increment();
+                localPut(key, value);
+                return value;
+            }
+        } catch (Exception e) {
+            log.warn("读取Redis检索缓存失败: {}", e.getMessage());
+        }
+        redisMisses.increment();
+
+        // 键中含有代数，写入之后到达的请求不会等待写入之前开始的查询
+        return coalesce(key, () -> {
+            T loaded = loader.get();
+            if (loaded != null && System.currentTimeMillis() - generationChangedAt >= writeGraceMs
+                    && cacheable.test(loaded)) {
+                localPut(key, loaded);
+                try {
+                    redisTemplate.opsForValue().set(key, objectMapper.writeValueAsString(loaded), redisTtlSeconds, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    log.warn("写入Redis检索缓存失败: {}", e.getMessage());
+                }
+            }
+            return loaded;
+        });
+    }
+
+    /**
+     * 缓存未命中时合并并发的相同查询，等待方与执行方得到同一个结果
+     */
+    private <T> T coalesce(String key, Supplier<T> loader) {
+        return coalesceEnabled ? singleFlight.execute(key, loader) : loader.get();
+    }
+
+    @Override
+    public void invalidate() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            Long latest = redisTemplate.opsForValue().increment(GENERATION_KEY);
+            observeGeneration(latest == null ? 0 : latest, now);
+            generationCheckedAt = now;
+        } catch (RuntimeException e) {
+            // Redis不可用时只能清空本实例的缓存，Redis中的旧结果按过期时间淘汰
+            log.warn("更新检索缓存代数失败: {}", e.getMessage());
+            synchronized (this) {
+                local.clear();
+                generationChangedAt = now;
+            }
+        }
+    }
+
+    private long currentGeneration() {
+        long now = System.currentTimeMillis();
+        if (generation < 0 || now - generationCheckedAt >= generationRefreshMs) {
+            try {
+                Object value = redisTemplate.opsForValue().get(GENERATION_KEY);
+                observeGeneration(value == null ? 0 : Long.parseLong(value.toString()), now);
+            } catch (RuntimeException e) {
+                log.warn("读取检索缓存代数失败: {}", e.getMessage());
+            }
+            generationCheckedAt = now;
+        }
+        return generation;
+    }
+
+    private synchronized void observeGeneration(long latest, long now) {
+        if (latest != generation) {
+            // 键中含有代数，旧代数的条目不会再命中，直接清空释放内存
+            local.clear();
+            if (generation >= 0) {
+                generationChangedAt = now;
+            }
+            generation = latest;
+        }
+    }
+
+    /**
+     * 规范化查询条件：按名称排序，去掉空条件；只有自由文本的keyword去掉首尾空白并合并连续空白，
+     * 其余字符串（精确匹配的条件、网关的检索体）原样参与缓存键，内容不同的查询不会共用结果
+     */
+    private String canonicalize(Map<String, ?> query) throws JsonProcessingException {
+        Map<String, Object> canonical = new TreeMap<>();
+        for (Map.Entry<String, ?> entry : query.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof String) {
+                String text = (String) value;
+                if (text.isBlank()) {
+                    value = null;
+                } else if (KEYWORD.equals(entry.getKey())) {
+                    // 关键词用于分词后的match查询，空白的多少不影响结果
+                    value = text.trim().replaceAll("\\s+", " ");
+                }
+            }
+            if (value != null) {
+                canonical.put(entry.getKey(), value);
+            }
+        }
+        return objectMapper.writeValueAsString(canonical);
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized <T> T localGet(String key) {
+        LocalEntry entry = local.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            local.remove(key);
+            return null;
+        }
+        return (T) entry.value;
+    }
+
+    private synchronized void localPut(String key, Object value) {
+        local.put(key, new LocalEntry(value, System.currentTimeMillis() + localTtlMs));
+    }
+
+    private synchronized int localSize() {
+        return local.size();
+    }
+
+    private Counter counter(String tier, String result) {
+        return Counter.builder("search.cache.requests")
+            .description("检索结果缓存的命中与未命中次数")
+            .tag("tier", tier)
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    private static final class LocalEntry {
+
+        private final Object value;
+
+        private final long expiresAt;
+
+        private LocalEntry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
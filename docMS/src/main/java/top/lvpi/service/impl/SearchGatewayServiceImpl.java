@@ -0,0 +1,377 @@
+package top.lvpi.service.impl;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import top.lvpi.common.BusinessException;
+import top.lvpi.common.ErrorCode;
+import top.lvpi.service.EsIndexService;
+import top.lvpi.service.SearchCacheService;
+import top.lvpi.service.SearchGatewayService;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+public class SearchGatewayServiceImpl implements SearchGatewayService {
+
+    private static final ContentType NDJSON = ContentType.create("application/x-ndjson", StandardCharsets.UTF_8);
+
+    private static final TypeReference<String> RESPONSE_TYPE = new TypeReference<String>() {
+    };
+
+    /**
+     * 检索体中任何层级都不允许出现的字段：脚本、运行时字段与调试输出；
+     * 此外以script结尾的字段（如scripted_metric的init_script、map_script，bucket_script）一律拒绝
+     */
+    private static final Set<String> FORBIDDEN_KEYS = Set.of("script", "script_fields", "scripted_metric",
+            "runtime_mappings", "profile", "explain", "pit");
+
+    private static final Set<String> AGGREGATION_KEYS = Set.of("aggs", "aggregations");
+
+    /**
+     * 返回桶数由size控制的聚合类型
+     */
+    private static final Set<String> BUCKET_AGGREGATIONS = Set.of("terms", "multi_terms", "significant_terms",
+            "composite");
+
+    @Autowired
+    private ElasticsearchClient elasticsearchClient;
+
+    @Autowired
+    private EsIndexService esIndexService;
+
+    @Autowired
+    private SearchCacheService searchCacheService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 单次请求最多包含的检索数，instantsearch每个多选筛选项会额外发出一条检索
+     */
+    @Value("${search.gateway.max-searches:20}")
+    private int maxSearches;
+
+    /**
+     * 单条检索最多返回的命中数
+     */
+    @Value("${search.gateway.max-size:100}")
+    private int maxSize;
+
+    /**
+     * from + size的上限，更深的翻页须使用游标翻页
+     */
+    @Value("${search.gateway.max-result-window:10000}")
+    private int maxResultWindow;
+
+    /**
+     * 单条检索的聚合总数上限，包括子聚合
+     */
+    @Value("${search.gateway.max-aggregations:30}")
+    private int maxAggregations;
+
+    /**
+     * 分组聚合返回的桶数上限
+     */
+    @Value("${search.gateway.max-bucket-size:200}")
+    private int maxBucketSize;
+
+    /**
+     * 高亮片段长度上限（字符）
+     */
+    @Value("${search.gateway.max-fragment-size:300}")
+    private int maxFragmentSize;
+
+    /**
+     * 每个字段的高亮片段数上限，0（返回整个字段）也按上限处理
+     */
+    @Value("${search.gateway.max-fragments:5}")
+    private int maxFragments;
+
+    /**
+     * 分片级检索超时（毫秒），超时的分片返回已找到的部分结果，部分结果不缓存
+     */
+    @Value("${search.gateway.timeout-ms:10000}")
+    private long timeoutMs;
+
+    /**
+     * 同时转发到ES的请求数上限
+     */
+    @Value("${search.gateway.max-concurrent:16}")
+    private int maxConcurrent;
+
+    /**
+     * 转发名额已满时的最长等待时间（毫秒），超时后拒绝请求
+     */
+    @Value("${search.gateway.acquire-timeout-ms:3000}")
+    private long acquireTimeoutMs;
+
+    @Value("${es.search.track-total-hits-up-to:10000}")
+    private int trackTotalHitsUpTo;
+
+    private RestClient restClient;
+
+    private Semaphore permits;
+
+    private Timer upstreamTimer;
+
+    private Counter invalidRequests;
+
+    private Counter overloadedRequests;
+
+    @PostConstruct
+    public void init() {
+        // 与ElasticsearchClient共用连接池，请求体原样透传，不经过类型化的请求对象
+        restClient = ((RestClientTransport) elasticsearchClient._transport()).restClient();
+        permits = new Semaphore(maxConcurrent);
+        upstreamTimer = Timer.builder("search.gateway.upstream")
+                .description("检索网关转发到ES的请求耗时")
+                .register(meterRegistry);
+        invalidRequests = rejectedCounter("invalid");
+        overloadedRequests = rejectedCounter("overloaded");
+    }
+
+    @Override
+    public String msearch(String index, String body) {
+        String rewritten;
+        try {
+            rewritten = rewrite(index, body);
+        } catch (BusinessException e) {
+            invalidRequests.increment();
+            throw e;
+        }
+        Map<String, Object> query = new LinkedHashMap<>();
+        query.put("body", rewritten);
+        return searchCacheService.get("gateway", query, RESPONSE_TYPE, () -> forward(rewritten), this::isComplete);
+    }
+
+    /**
+     * 逐条校验检索头与检索体，输出规范化后的NDJSON，同时作为缓存键
+     */
+    String rewrite(String index, String body) {
+        List<String> lines = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            if (!line.isBlank()) {
+                lines.add(line);
+            }
+        }
+        if (lines.isEmpty() || lines.size() % 2 != 0) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "检索请求格式错误");
+        }
+        if (lines.size() / 2 > maxSearches) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "单次请求最多包含" + maxSearches + "条检索");
+        }
+
+        String readAlias = esIndexService.getReadAlias();
+        StringBuilder out = new StringBuilder();
+        try {
+            for (int i = 0; i < lines.size(); i += 2) {
+                ObjectNode header = readObject(lines.get(i));
+                String target = header.path("index").isTextual() ? header.get("index").asText() : index;
+                if (!readAlias.equals(target)) {
+                    throw new BusinessException(ErrorCode.PARAMS_ERROR, "只允许检索索引" + readAlias);
+                }
+                // 只保留索引名，丢弃preference、routing等选项
+                ObjectNode rewrittenHeader = objectMapper.createObjectNode().put("index", readAlias);
+                out.append(objectMapper.writeValueAsString(rewrittenHeader)).append('\n');
+                out.append(objectMapper.writeValueAsString(rewriteSearch(readObject(lines.get(i + 1))))).append('\n');
+            }
+        } catch (JsonProcessingException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "检索请求格式错误");
+        }
+        return out.toString();
+    }
+
+    private ObjectNode rewriteSearch(ObjectNode search) {
+        checkForbidden(search);
+
+        int size = search.path("size").asInt(10);
+        int from = search.path("from").asInt(0);
+        if (size < 0 || from < 0) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "分页参数错误");
+        }
+        size = Math.min(size, maxSize);
+        if (from + size > maxResultWindow) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "翻页超出" + maxResultWindow + "条，请缩小检索范围");
+        }
+        search.put("size", size);
+
+        int aggregations = limitAggregations(search, 0);
+        if (aggregations > maxAggregations) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "单条检索最多包含" + maxAggregations + "个聚合");
+        }
+
+        JsonNode highlight = search.get("highlight");
+        if (highlight instanceof ObjectNode) {
+            limitHighlight((ObjectNode) highlight);
+            JsonNode fields = highlight.get("fields");
+            if (fields instanceof ObjectNode) {
+                fields.forEach(this::limitHighlight);
+            } else if (fields != null && fields.isArray()) {
+                // 数组形式：[{"字段名": {配置}}]
+                fields.forEach(field -> field.forEach(this::limitHighlight));
+            }
+        }
+
+        JsonNode trackTotalHits = search.get("track_total_hits");
+        if (trackTotalHits == null || trackTotalHits.isBoolean() && trackTotalHits.asBoolean()
+                || trackTotalHits.isNumber() && trackTotalHits.asInt() > trackTotalHitsUpTo) {
+            search.put("track_total_hits", trackTotalHitsUpTo);
+        }
+        search.put("timeout", timeoutMs + "ms");
+        return search;
+    }
+
+    private void checkForbidden(JsonNode node) {
+        if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (isForbidden(field.getKey())) {
+                    throw new BusinessException(ErrorCode.PARAMS_ERROR, "检索请求中不允许使用" + field.getKey());
+                }
+                checkForbidden(field.getValue());
+            }
+        } else if (node.isArray()) {
+            node.forEach(this::checkForbidden);
+        }
+    }
+
+    private static boolean isForbidden(String key) {
+        String normalized = key.toLowerCase(Locale.ROOT);
+        return FORBIDDEN_KEYS.contains(normalized) || normalized.endsWith("script");
+    }
+
+    /**
+     * 限制各层聚合的桶数与top_hits条数
+     *
+     * @return 累计的聚合数
+     */
+    private int limitAggregations(JsonNode node, int count) {
+        for (String key : AGGREGATION_KEYS) {
+            JsonNode aggs = node.get(key);
+            if (aggs == null || !aggs.isObject()) {
+                continue;
+            }
+            Iterator<JsonNode> definitions = aggs.elements();
+            while (definitions.hasNext()) {
+                JsonNode definition = definitions.next();
+                count++;
+                for (String type : BUCKET_AGGREGATIONS) {
+                    capInt(definition.get(type), "size", maxBucketSize);
+                    capInt(definition.get(type), "shard_size", maxBucketSize * 2);
+                }
+                capInt(definition.get("top_hits"), "size", maxSize);
+                count = limitAggregations(definition, count);
+            }
+        }
+        return count;
+    }
+
+    private void limitHighlight(JsonNode options) {
+        capInt(options, "fragment_size", maxFragmentSize);
+        capInt(options, "no_match_size", maxFragmentSize);
+        if (options instanceof ObjectNode && options.has("number_of_fragments")) {
+            int fragments = options.get("number_of_fragments").asInt();
+            if (fragments <= 0 || fragments > maxFragments) {
+                ((ObjectNode) options).put("number_of_fragments", maxFragments);
+            }
+        }
+    }
+
+    private void capInt(JsonNode node, String field, int max) {
+        if (node instanceof ObjectNode && node.has(field) && node.get(field).asInt() > max) {
+            ((ObjectNode) node).put(field, max);
+        }
+    }
+
+    private ObjectNode readObject(String line) throws JsonProcessingException {
+        JsonNode node = objectMapper.readTree(line);
+        if (!(node instanceof ObjectNode)) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "检索请求格式错误");
+        }
+        return (ObjectNode) node;
+    }
+
+    private String forward(String body) {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "检索被中断");
+        }
+        if (!acquired) {
+            overloadedRequests.increment();
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "检索请求过多，请稍后再试");
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            Request request = new Request("POST", "/_msearch");
+            request.setEntity(new StringEntity(body, NDJSON));
+            Response response = restClient.performRequest(request);
+            return EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.error("转发检索请求失败", e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "检索服务暂不可用");
+        } finally {
+            sample.stop(upstreamTimer);
+            permits.release();
+        }
+    }
+
+    /**
+     * 有检索失败或分片超时的响应不缓存
+     */
+    private boolean isComplete(String response) {
+        try {
+            for (JsonNode item : objectMapper.readTree(response).path("responses")) {
+                if (item.has("error") || item.path("timed_out").asBoolean(false)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (JsonProcessingException e) {
+            return false;
+        }
+    }
+
+    private Counter rejectedCounter(String reason) {
+        return Counter.builder("search.gateway.rejected")
+                .description("检索网关拒绝的请求数")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
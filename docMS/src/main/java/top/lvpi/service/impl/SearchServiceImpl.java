@@ -1,21 +1,38 @@
 package top.lvpi.service.impl;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.SortOrder;
 import co.elastic.clients.elasticsearch._types.query_dsl.*;
 import co.elastic.clients.elasticsearch.core.*;
 import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
 import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.HitsMetadata;
 import co.elastic.clients.elasticsearch.core.search.TotalHits;
 import co.elastic.clients.elasticsearch.core.search.TotalHitsRelation;
 import co.elastic.clients.json.JsonData;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import top.lvpi.common.BusinessException;
+import top.lvpi.common.ErrorCode;
+import top.lvpi.model.dto.es.CachedPage;
+import top.lvpi.model.dto.es.CursorPage;
 import top.lvpi.model.entity.Doc;
+import top.lvpi.service.SearchCacheService;
 import top.lvpi.service.SearchService;
+import top.lvpi.utils.SearchCursor;
+import com.fasterxml.jackson.core.type.TypeReference;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @Slf4j
@@ -24,8 +41,26 @@ public class SearchServiceImpl implements SearchService {
     @Autowired
     private ElasticsearchClient elasticsearchClient;
 
+    @Autowired
+    private SearchCacheService searchCacheService;
+
     private static final String INDEX_NAME = "docs";
 
+    private static final TypeReference<CachedPage<Doc>> DOC_PAGE_TYPE = new TypeReference<CachedPage<Doc>>() {
+    };
+
+    /**
+     * 命中总数精确统计的上限，超过时只返回下限值，避免为计数遍历全部命中文档
+     */
+    @Value("${es.search.track-total-hits-up-to:10000}")
+    private int trackTotalHitsUpTo;
+
+    /**
+     * 游标翻页时两次请求之间时间点的保持时间（秒）
+     */
+    @Value("${es.search.cursor-keep-alive-seconds:120}")
+    private long cursorKeepAliveSeconds;
+
     @Override
     public void createOrUpdateIndex(Doc doc) {
         try {
@@ -35,6 +70,7 @@ public class SearchServiceImpl implements SearchService {
                 .document(doc)
             );
             log.info("Indexed doc {} with result {}", doc.getId(), response.result());
+            searchCacheService.invalidate();
         } catch (Exception e) {
             log.error("Error indexing doc {}: {}", doc.getId(), e.getMessage());
             throw new RuntimeException("索引创建失败", e);
@@ -49,6 +85,7 @@ public class SearchServiceImpl implements SearchService {
                 .id(String.valueOf(id))
             );
             log.info("Deleted index for doc {} with result {}", id, response.result());
+            searchCacheService.invalidate();
         } catch (Exception e) {
             log.error("Error deleting index for doc {}: {}", id, e.getMessage());
             throw new RuntimeException("索引删除失败", e);
@@ -56,27 +93,18 @@ public class SearchServiceImpl implements SearchService {
     }
 
     @Override
-    public List<Doc> searchDocs(String keyword, int page, int size) {
-        try {
-            // 构建多字段匹配查询
-            Query byKeyword = MatchQuery.of(m -> m
-                .field("title")
-                .field("author")
-                .field("summary")
-                .field("keyWord")
-                .query(keyword)
-            )._toQuery();
-
-            SearchResponse<Doc> response = elasticsearchClient.search(s -> s
-                .index(INDEX_NAME)
-                .query(byKeyword)
-                .from((page - 1) * size)
-                .size(size),
-                Doc.class
-            );
+    public IPage<Doc> searchDocs(String keyword, int page, int size) {
+        Map<String, Object> query = new LinkedHashMap<>();
+        query.put("keyword", keyword);
+        query.put("page", page);
+        query.put("size", size);
+        return toPage(searchCacheService.get("docs", query, DOC_PAGE_TYPE,
+            () -> doSearchDocs(keyword, page, size)), page, size);
+    }
 
-            logSearchResults(response);
-            return extractSearchResults(response);
+    private CachedPage<Doc> doSearchDocs(String keyword, int page, int size) {
+        try {
+            return executeSearch(keywordQuery(keyword), page, size);
         } catch (Exception e) {
             log.error("Error searching docs: {}", e.getMessage());
             throw new RuntimeException("搜索失败", e);
@@ -84,77 +112,24 @@ public class SearchServiceImpl implements SearchService {
     }
 
     @Override
-    public long countSearch(String keyword) {
-        try {
-            Query query = MatchQuery.of(m -> m
-                .field("title")
-                .field("author")
-                .field("summary")
-                .field("keyWord")
-                .query(keyword)
-            )._toQuery();
-
-            return executeCount(query);
-        } catch (Exception e) {
-            log.error("Error counting search results: {}", e.getMessage());
-            throw new RuntimeException("搜索计数失败", e);
-        }
+    public IPage<Doc> advancedSearch(String keyword, String category, String author,
+                                     Integer yearFrom, Integer yearTo, int page, int size) {
+        Map<String, Object> query = new LinkedHashMap<>();
+        query.put("keyword", keyword);
+        query.put("category", category);
+        query.put("author", author);
+        query.put("yearFrom", yearFrom);
+        query.put("yearTo", yearTo);
+        query.put("page", page);
+        query.put("size", size);
+        return toPage(searchCacheService.get("docs-advanced", query, DOC_PAGE_TYPE,
+            () -> doAdvancedSearch(keyword, category, author, yearFrom, yearTo, page, size)), page, size);
     }
 
-    @Override
-    public List<Doc> advancedSearch(String keyword, String category, String author,
-                                   Integer yearFrom, Integer yearTo, int page, int size) {
+    private CachedPage<Doc> doAdvancedSearch(String keyword, String category, String author,
+                                             Integer yearFrom, Integer yearTo, int page, int size) {
         try {
-            BoolQuery.Builder boolQuery = new BoolQuery.Builder();
-
-            // 关键词搜索
-            if (keyword != null) {
-                boolQuery.must(MatchQuery.of(m -> m
-                    .field("title")
-                    .field("summary")
-                    .field("keyWord")
-                    .query(keyword)
-                )._toQuery());
-            }
-
-            // 分类过滤
-            if (category != null) {
-                boolQuery.filter(TermQuery.of(t -> t
-                    .field("category")
-                    .value(category)
-                )._toQuery());
-            }
-
-            // 作者过滤
-            if (author != null) {
-                boolQuery.filter(TermQuery.of(t -> t
-                    .field("author.keyword")
-                    .value(author)
-                )._toQuery());
-            }
-
-            // 年份范围过滤
-            if (yearFrom != null || yearTo != null) {
-                RangeQuery.Builder rangeQuery = new RangeQuery.Builder().field("publicationYear");
-                if (yearFrom != null) {
-                    rangeQuery.gte(JsonData.of(yearFrom));
-                }
-                if (yearTo != null) {
-                    rangeQuery.lte(JsonData.of(yearTo));
-                }
-                boolQuery.filter(rangeQuery.build()._toQuery());
-            }
-
-            SearchResponse<Doc> response = elasticsearchClient.search(s -> s
-                .index(INDEX_NAME)
-                .query(boolQuery.build()._toQuery())
-                .from((page - 1) * size)
-                .size(size),
-                Doc.class
-            );
-
-            logSearchResults(response);
-            return extractSearchResults(response);
+            return executeSearch(advancedQuery(keyword, category, author, yearFrom, yearTo), page, size);
         } catch (Exception e) {
             log.error("Error performing advanced search: {}", e.getMessage());
             throw new RuntimeException("高级搜索失败", e);
@@ -162,30 +137,35 @@ public class SearchServiceImpl implements SearchService {
     }
 
     @Override
-    public long countAdvancedSearch(String keyword, String category, String author,
-                                  Integer yearFrom, Integer yearTo) {
-        try {
-            BoolQuery.Builder boolQuery = new BoolQuery.Builder();
-
-            // 构建与advancedSearch相同的查询条件
-            // ... (与上面相同的查询构建逻辑)
+    public CursorPage<Doc> searchDocsAfter(String keyword, String cursor, int size) {
+        Map<String, Object> conditions = new LinkedHashMap<>();
+        conditions.put("keyword", keyword);
+        return executeCursorSearch(keywordQuery(keyword), SearchCursor.fingerprint(conditions), cursor, size);
+    }
 
-            return executeCount(boolQuery.build()._toQuery());
-        } catch (Exception e) {
-            log.error("Error counting advanced search results: {}", e.getMessage());
-            throw new RuntimeException("高级搜索计数失败", e);
-        }
+    @Override
+    public CursorPage<Doc> advancedSearchAfter(String keyword, String category, String author,
+                                               Integer yearFrom, Integer yearTo, String cursor, int size) {
+        Map<String, Object> conditions = new LinkedHashMap<>();
+        conditions.put("keyword", keyword);
+        conditions.put("category", category);
+        conditions.put("author", author);
+        conditions.put("yearFrom", yearFrom);
+        conditions.put("yearTo", yearTo);
+        return executeCursorSearch(advancedQuery(keyword, category, author, yearFrom, yearTo),
+            SearchCursor.fingerprint(conditions), cursor, size);
     }
 
     @Override
-    public List<Doc> templateSearch(String field, String value, int page, int size) {
+    public IPage<Doc> templateSearch(String field, String value, int page, int size) {
         try {
-            // 创建脚本模板
+            // 创建脚本模板，分页与总数统计也由模板参数给出，一次请求同时返回结果与总数
             elasticsearchClient.putScript(r -> r
                 .id("query-script")
                 .script(s -> s
                     .lang("mustache")
-                    .source("{\"query\":{\"match\":{\"{{field}}\":\"{{value}}\"}}}")
+                    .source("{\"track_total_hits\":{{trackTotalHits}},\"from\":{{from}},\"size\":{{size}},"
+                        + "\"query\":{\"match\":{\"{{field}}\":\"{{value}}\"}}}")
                 )
             );
 
@@ -194,11 +174,14 @@ public class SearchServiceImpl implements SearchService {
                 .index(INDEX_NAME)
                 .id("query-script")
                 .params("field", JsonData.of(field))
-                .params("value", JsonData.of(value)),
+                .params("value", JsonData.of(value))
+                .params("from", JsonData.of((page - 1) * size))
+                .params("size", JsonData.of(size))
+                .params("trackTotalHits", JsonData.of(trackTotalHitsUpTo)),
                 Doc.class
             );
 
-            return extractSearchResults(response);
+            return toPage(extractSearchResults(response.hits()), page, size);
         } catch (Exception e) {
             log.error("Error performing template search: {}", e.getMessage());
             throw new RuntimeException("模板搜索失败", e);
@@ -206,22 +189,7 @@ public class SearchServiceImpl implements SearchService {
     }
 
     @Override
-    public long countTemplateSearch(String field, String value) {
-        try {
-            Query query = MatchQuery.of(m -> m
-                .field(field)
-                .query(value)
-            )._toQuery();
-
-            return executeCount(query);
-        } catch (Exception e) {
-            log.error("Error counting template search results: {}", e.getMessage());
-            throw new RuntimeException("模板搜索计数失败", e);
-        }
-    }
-
-    @Override
-    public List<Doc> nestedSearch(String keyword, Integer maxYear, int page, int size) {
+    public IPage<Doc> nestedSearch(String keyword, Integer maxYear, int page, int size) {
         try {
             // 构建关键词查询
             Query byName = MatchQuery.of(m -> m
@@ -241,48 +209,13 @@ public class SearchServiceImpl implements SearchService {
                 boolQuery.must(byMaxYear);
             }
 
-            SearchResponse<Doc> response = elasticsearchClient.search(s -> s
-                .index(INDEX_NAME)
-                .query(boolQuery.build()._toQuery())
-                .from((page - 1) * size)
-                .size(size),
-                Doc.class
-            );
-
-            logSearchResults(response);
-            return extractSearchResults(response);
+            return toPage(executeSearch(boolQuery.build()._toQuery(), page, size), page, size);
         } catch (Exception e) {
             log.error("Error performing nested search: {}", e.getMessage());
             throw new RuntimeException("嵌套搜索失败", e);
         }
     }
 
-    @Override
-    public long countNestedSearch(String keyword, Integer maxYear) {
-        try {
-            // 构建与nestedSearch相同的查询条件
-            Query byName = MatchQuery.of(m -> m
-                .field("title")
-                .query(keyword)
-            )._toQuery();
-
-            Query byMaxYear = maxYear != null ? RangeQuery.of(r -> r
-                .field("publicationYear")
-                .lte(JsonData.of(maxYear))
-            )._toQuery() : null;
-
-            BoolQuery.Builder boolQuery = new BoolQuery.Builder().must(byName);
-            if (byMaxYear != null) {
-                boolQuery.must(byMaxYear);
-            }
-
-            return executeCount(boolQuery.build()._toQuery());
-        } catch (Exception e) {
-            log.error("Error counting nested search results: {}", e.getMessage());
-            throw new RuntimeException("嵌套搜索计数失败", e);
-        }
-    }
-
     @Override
     public void bulkIndexDocs(List<Doc> docs) {
         try {
@@ -309,50 +242,203 @@ public class SearchServiceImpl implements SearchService {
                 }
                 throw new RuntimeException("批量索引失败");
             }
+            searchCacheService.invalidate();
         } catch (Exception e) {
             log.error("Error bulk indexing docs: {}", e.getMessage());
             throw new RuntimeException("批量索引失败", e);
         }
     }
 
-    private void logSearchResults(SearchResponse<Doc> response) {
-        TotalHits total = response.hits().total();
-        boolean isExactResult = total.relation() == TotalHitsRelation.Eq;
+    /**
+     * 多字段匹配查询
+     */
+    private Query keywordQuery(String keyword) {
+        return MatchQuery.of(m -> m
+            .field("title")
+            .field("author")
+            .field("summary")
+            .field("keyWord")
+            .query(keyword)
+        )._toQuery();
+    }
 
-        if (isExactResult) {
-            log.info("Found {} results", total.value());
-        } else {
-            log.info("Found more than {} results", total.value());
+    private Query advancedQuery(String keyword, String category, String author, Integer yearFrom, Integer yearTo) {
+        BoolQuery.Builder boolQuery = new BoolQuery.Builder();
+
+        // 关键词搜索
+        if (keyword != null) {
+            boolQuery.must(MatchQuery.of(m -> m
+                .field("title")
+                .field("summary")
+                .field("keyWord")
+                .query(keyword)
+            )._toQuery());
         }
+
+        // 分类过滤
+        if (category != null) {
+            boolQuery.filter(TermQuery.of(t -> t
+                .field("category")
+                .value(category)
+            )._toQuery());
+        }
+
+        // 作者过滤
+        if (author != null) {
+            boolQuery.filter(TermQuery.of(t -> t
+                .field("author.keyword")
+                .value(author)
+            )._toQuery());
+        }
+
+        // 年份范围过滤
+        if (yearFrom != null || yearTo != null) {
+            RangeQuery.Builder rangeQuery = new RangeQuery.Builder().field("publicationYear");
+            if (yearFrom != null) {
+                rangeQuery.gte(JsonData.of(yearFrom));
+            }
+            if (yearTo != null) {
+                rangeQuery.lte(JsonData.of(yearTo));
+            }
+            boolQuery.filter(rangeQuery.build()._toQuery());
+        }
+
+        return boolQuery.build()._toQuery();
     }
 
-    private List<Doc> extractSearchResults(SearchResponse<Doc> response) {
-        List<Doc> docs = new ArrayList<>();
-        for (Hit<Doc> hit : response.hits().hits()) {
-            Doc doc = hit.source();
-            log.debug("Found doc {} with score {}", doc.getId(), hit.score());
-            docs.add(doc);
+    /**
+     * 在时间点上按search_after续读一页，首页打开时间点并统计命中总数，后续页沿用游标中的总数
+     */
+    private CursorPage<Doc> executeCursorSearch(Query query, String fingerprint, String cursor, int size) {
+        SearchCursor state = cursor == null || cursor.isBlank() ? null : SearchCursor.decode(cursor, fingerprint);
+        String keepAlive = cursorKeepAliveSeconds + "s";
+        // 首页打开的时间点，查询或解析失败时在finally中释放，否则它会在ES上保留到过期
+        String openedPitId = null;
+        boolean returned = false;
+        try {
+            if (state == null) {
+                openedPitId = elasticsearchClient.openPointInTime(o -> o.index(INDEX_NAME).keepAlive(t -> t.time(keepAlive))).id();
+            }
+            String pitId = state == null ? openedPitId : state.getPitId();
+
+            // ES会在排序末尾自动追加_shard_doc，保证排序值唯一
+            SearchResponse<Doc> response = elasticsearchClient.search(s -> {
+                s.pit(p -> p.id(pitId).keepAlive(t -> t.time(keepAlive)))
+                    .query(query)
+                    .size(size)
+                    .sort(so -> so.score(sc -> sc.order(SortOrder.Desc)));
+                if (state == null) {
+                    s.trackTotalHits(t -> t.count(trackTotalHitsUpTo));
+                } else {
+                    s.trackTotalHits(t -> t.enabled(false))
+                        .searchAfter(toFieldValues(state.getSearchAfter()));
+                }
+                return s;
+            }, Doc.class);
+
+            List<Hit<Doc>> hits = response.hits().hits();
+            List<Doc> docs = new ArrayList<>();
+            for (Hit<Doc> hit : hits) {
+                docs.add(hit.source());
+            }
+            long total = state == null ? response.hits().total().value() : state.getTotal();
+            String latestPitId = response.pitId() != null ? response.pitId() : pitId;
+
+            if (hits.size() < size) {
+                returned = true;
+                closePointInTime(latestPitId);
+                return new CursorPage<>(docs, total, null);
+            }
+            List<Object> sortValues = new ArrayList<>();
+            for (FieldValue value : hits.get(hits.size() - 1).sort()) {
+                sortValues.add(value._get());
+            }
+            CursorPage<Doc> page = new CursorPage<>(docs, total, new SearchCursor(latestPitId, sortValues, total, fingerprint).encode());
+            returned = true;
+            return page;
+        } catch (ElasticsearchException e) {
+            if (state != null && e.status() == 404) {
+                throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "翻页游标已过期，请重新检索");
+            }
+            log.error("Error performing cursor search: {}", e.getMessage());
+            throw new RuntimeException("搜索失败", e);
+        } catch (IOException e) {
+            log.error("Error performing cursor search: {}", e.getMessage());
+            throw new RuntimeException("搜索失败", e);
+        } finally {
+            if (openedPitId != null && !returned) {
+                closePointInTime(openedPitId);
+            }
         }
-        return docs;
     }
 
-    private List<Doc> extractSearchResults(SearchTemplateResponse<Doc> response) {
-        List<Doc> docs = new ArrayList<>();
-        for (Hit<Doc> hit : response.hits().hits()) {
-            Doc doc = hit.source();
-            log.debug("Found doc {} with score {}", doc.getId(), hit.score());
-            docs.add(doc);
+    private List<FieldValue> toFieldValues(List<Object> values) {
+        List<FieldValue> fieldValues = new ArrayList<>();
+        for (Object value : values) {
+            if (value == null) {
+                fieldValues.add(FieldValue.NULL);
+            } else if (value instanceof Double || value instanceof Float) {
+                fieldValues.add(FieldValue.of(((Number) value).doubleValue()));
+            } else if (value instanceof Number) {
+                fieldValues.add(FieldValue.of(((Number) value).longValue()));
+            } else if (value instanceof Boolean) {
+                fieldValues.add(FieldValue.of((Boolean) value));
+            } else {
+                fieldValues.add(FieldValue.of(value.toString()));
+            }
+        }
+        return fieldValues;
+    }
+
+    private void closePointInTime(String pitId) {
+        try {
+            elasticsearchClient.closePointInTime(c -> c.id(pitId));
+        } catch (Exception e) {
+            // 未释放的时间点在保持时间到期后由ES回收
+            log.warn("Error closing point in time: {}", e.getMessage());
         }
-        return docs;
     }
 
-    private long executeCount(Query query) throws Exception {
+    /**
+     * 执行查询，当前页与命中总数在同一次请求中返回
+     */
+    private CachedPage<Doc> executeSearch(Query query, int page, int size) throws IOException {
         SearchResponse<Doc> response = elasticsearchClient.search(s -> s
             .index(INDEX_NAME)
             .query(query)
-            .size(0),
+            .from((page - 1) * size)
+            .size(size)
+            .trackTotalHits(t -> t.count(trackTotalHitsUpTo)),
             Doc.class
         );
-        return response.hits().total().value();
+        return extractSearchResults(response.hits());
+    }
+
+    private CachedPage<Doc> extractSearchResults(HitsMetadata<Doc> hits) {
+        TotalHits total = hits.total();
+        if (total == null) {
+            log.info("Found results without total");
+        } else if (total.relation() == TotalHitsRelation.Eq) {
+            log.info("Found {} results", total.value());
+        } else {
+            log.info("Found more than {} results", total.value());
+        }
+
+        List<Doc> docs = new ArrayList<>();
+        for (Hit<Doc> hit : hits.hits()) {
+            Doc doc = hit.source();
+            log.debug("Found doc {} with score {}", doc.getId(), hit.score());
+            docs.add(doc);
+        }
+        return new CachedPage<>(docs, total == null ? docs.size() : total.value());
+    }
+
+    /**
+     * 命中数超过统计上限时总数为下限值，分页只能翻到上限以内
+     */
+    private IPage<Doc> toPage(CachedPage<Doc> result, int page, int size) {
+        Page<Doc> docPage = new Page<>(page, size, result.getTotal());
+        docPage.setRecords(result.getContent());
+        return docPage;
     }
-} 
\ No newline at end of file
+}
@@ -9,6 +9,8 @@ import top.lvpi.model.dto.topic.TopicPathDTO;
 import top.lvpi.model.dto.topic.TopicTreeDTO;
 import top.lvpi.model.entity.Topic;
 import top.lvpi.model.entity.DocTopic;
+import top.lvpi.model.entity.EsOutbox;
+import top.lvpi.service.EsOutboxService;
 import top.lvpi.service.TopicService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,6 +31,9 @@ public class TopicServiceImpl extends ServiceImpl<TopicMapper, Topic> implements
     @Autowired
     private DocTopicMapper docTopicMapper;
 
+    @Autowired
+    private EsOutboxService esOutboxService;
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean save(Topic topic) {
@@ -55,18 +60,59 @@ public class TopicServiceImpl extends ServiceImpl<TopicMapper, Topic> implements
             }
         }
         
+        // 名称或上级变化会改变该主题及其下级主题的路径，需要同步关联图书的索引
+        Topic old = this.getById(topic.getId());
+        boolean pathChanged = old != null
+            && ((topic.getName() != null && !topic.getName().equals(old.getName()))
+                || (topic.getParentId() != null && !topic.getParentId().equals(old.getParentId())));
+
         boolean result = super.updateById(topic);
+        if (result && pathChanged) {
+            enqueueSubtreeDocs(topic.getId());
+        }
         return result;
     }
 
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean removeById(Serializable id) {
+        // 删除前取得关联图书，删除后主题路径不再可查
+        Long topicId = Long.valueOf(id.toString());
+        Set<Long> docIds = getSubtreeDocIds(topicId);
         boolean result = super.removeById(id);
+        if (result) {
+            docIds.forEach(docId -> esOutboxService.enqueue(EsOutbox.TYPE_DOC, docId, EsOutbox.OP_METADATA));
+        }
 
         return result;
     }
 
+    private void enqueueSubtreeDocs(Long topicId) {
+        Set<Long> docIds = getSubtreeDocIds(topicId);
+        docIds.forEach(docId -> esOutboxService.enqueue(EsOutbox.TYPE_DOC, docId, EsOutbox.OP_METADATA));
+        logger.info("主题[{}]路径变化，待同步索引的图书{}本", topicId, docIds.size());
+    }
+
+    /**
+     * 关联了该主题或其任一下级主题的图书
+     */
+    private Set<Long> getSubtreeDocIds(Long topicId) {
+        Set<Long> topicIds = new HashSet<>();
+        List<Long> current = Collections.singletonList(topicId);
+        while (!current.isEmpty()) {
+            topicIds.addAll(current);
+            current = this.list(new LambdaQueryWrapper<Topic>().in(Topic::getParentId, current)).stream()
+                .map(Topic::getId)
+                .filter(child -> !topicIds.contains(child))
+                .collect(Collectors.toList());
+        }
+        return docTopicMapper.selectList(new LambdaQueryWrapper<DocTopic>()
+                .select(DocTopic::getDocId)
+                .in(DocTopic::getTopicId, topicIds)).stream()
+            .map(DocTopic::getDocId)
+            .collect(Collectors.toSet());
+    }
+
 
     @Override
     @Transactional(rollbackFor = Exception.class)
@@ -259,22 +305,8 @@ public class TopicServiceImpl extends ServiceImpl<TopicMapper, Topic> implements
         // 2. 获取每个主题的完整路径, 
         List<TopicPathDTO> result = new ArrayList<>();
         for (DocTopic docTopic : docTopics) {
-            List<Topic> topicPath = getTopicWithParents(docTopic.getTopicId());
-            // 过滤掉parentId为null、level大于等于100的主题
-            topicPath = topicPath.stream()
-                    .filter(topic -> topic.getParentId() != null && topic.getLevel() != null && topic.getLevel() < 100)
-                    .collect(Collectors.toList());
-
-            if (!topicPath.isEmpty()) {
-                TopicPathDTO pathDTO = new TopicPathDTO();
-                pathDTO.setTopicId(docTopic.getTopicId());
-                // 使用 > 连接主题名称
-                String path = topicPath.stream()
-                        .map(Topic::getName)
-                        .collect(Collectors.joining(" > "));
-                pathDTO.setPath(path);
-                // 主题级别数量
-                pathDTO.setLevelSize(topicPath.size() - 1);
+            TopicPathDTO pathDTO = buildTopicPath(docTopic.getTopicId(), getTopicWithParents(docTopic.getTopicId()));
+            if (pathDTO != null) {
                 result.add(pathDTO);
             }
         }
@@ -282,6 +314,33 @@ public class TopicServiceImpl extends ServiceImpl<TopicMapper, Topic> implements
         return result;
     }
 
+    /**
+     * 由按层级从高到低排列的主题链生成主题路径
+     * @param topicId 主题ID
+     * @param topicPath getTopicWithParents返回的主题链
+     * @return 主题路径，过滤后为空时返回null
+     */
+    public static TopicPathDTO buildTopicPath(Long topicId, List<Topic> topicPath) {
+        // 过滤掉parentId为null、level大于等于100的主题
+        topicPath = topicPath.stream()
+                .filter(topic -> topic.getParentId() != null && topic.getLevel() != null && topic.getLevel() < 100)
+                .collect(Collectors.toList());
+
+        if (topicPath.isEmpty()) {
+            return null;
+        }
+        TopicPathDTO pathDTO = new TopicPathDTO();
+        pathDTO.setTopicId(topicId);
+        // 使用 > 连接主题名称
+        String path = topicPath.stream()
+                .map(Topic::getName)
+                .collect(Collectors.joining(" > "));
+        pathDTO.setPath(path);
+        // 主题级别数量
+        pathDTO.setLevelSize(topicPath.size() - 1);
+        return pathDTO;
+    }
+
     @Override
     public List<Topic> getDocTopicTags(Long docId) {
         return baseMapper.getDocTopicTags(docId);
@@ -375,7 +434,9 @@ public class TopicServiceImpl extends ServiceImpl<TopicMapper, Topic> implements
                 }
             }
         }
-        
+
+        // 主题变化只更新索引中的图书信息字段
+        esOutboxService.enqueue(EsOutbox.TYPE_DOC, docId, EsOutbox.OP_METADATA);
         return true;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,23 @@
+package top.lvpi.utils;
+
+/**
+ * 协作式取消标记，由任务发起方设置，执行方在页、文档等检查点读取后自行退出
+ */
+public class CancellationToken {
+
+    private volatile boolean cancelled;
+
+    /**
+     * 请求取消
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * 是否已请求取消
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
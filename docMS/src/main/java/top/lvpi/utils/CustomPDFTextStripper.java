@@ -6,6 +6,9 @@ import org.apache.pdfbox.text.PDFTextStripper;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * @ClassName: CustomPDFTextStripper
@@ -18,6 +21,21 @@ public class CustomPDFTextStripper extends PDFTextStripper {
     public CustomPDFTextStripper() throws IOException {
     }
 
+    /**
+     * 以常见序号开头的标题行
+     */
+    private static final Pattern HEADING_PATTERN = Pattern.compile("^(\\d+\\.|\\d+、|\\d+\\)|（[一二三四五六七八九十]）|[一二三四五六七八九十] |第([一二三四五六七八九十])|[一二三四五六七八九十]、|\\([一二三四五六七八九十]\\)、|\\(\\d+\\)|①|②|③|④|⑤|⑥|⑦|⑧|⑨).*");
+
+    /**
+     * 以圆圈序号开头的行
+     */
+    private static final Pattern CIRCLED_PATTERN = Pattern.compile("(^①|^②|^③|^④|^⑤|^⑥|^⑦|^⑧|^⑨).*");
+
+    /**
+     * 全角空格，不属于\s，需要单独删除
+     */
+    private static final char EM_SPACE = '\u2003';
+
     @Override
     public void writeText(PDDocument doc, Writer outputStream) throws IOException {
         // 使用StringWriter来收集提取的文本
@@ -26,67 +44,221 @@ public class CustomPDFTextStripper extends PDFTextStripper {
         // 调用父类的writeText方法，将内容写入StringWriter
         super.writeText(doc, writer);
 
-        // 获取从StringWriter中提取的文本
-        String extractedText = writer.toString();
-        String[] split = extractedText.split("\\n");
+        outputStream.write(reflow(writer.toString()));
+    }
+
+    /**
+     * 删除无意义的换行，将提取出的文本重排为段落
+     * 单次遍历完成分行与行分类，行以下标区间表示，不创建子串；每行的非空白字数只计算一次
+     *
+     * @param extractedText 父类提取出的文本
+     * @return 处理后的文本
+     */
+    public static String reflow(String extractedText) {
+        // 按换行符分行，规则与String.split("\\n")一致：去掉末尾的空行
+        int textLength = extractedText.length();
+        int[] lineStarts = new int[16];
+        int[] lineEnds = new int[16];
+        int lineCount = 0;
+        int lineStart = 0;
+        for (int i = 0; i <= textLength; i++) {
+            if (i == textLength || extractedText.charAt(i) == '\n') {
+                if (lineCount == lineStarts.length) {
+                    lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+                    lineEnds = Arrays.copyOf(lineEnds, lineCount * 2);
+                }
+                lineStarts[lineCount] = lineStart;
+                lineEnds[lineCount] = i;
+                lineCount++;
+                lineStart = i + 1;
+            }
+        }
+        if (lineCount > 1) {
+            while (lineCount > 0 && lineStarts[lineCount - 1] == lineEnds[lineCount - 1]) {
+                lineCount--;
+            }
+        }
 
         int totalLength = 0;
         int count = 0;
 
         // 计算每行的字数
-        int[] lineLengths = new int[split.length];
-        for (int i = 0; i < split.length; i++) {
-            lineLengths[i] = split[i].replaceAll("\\s", "").length(); // 移除空白字符
+        int[] lineLengths = new int[lineCount];
+        for (int i = 0; i < lineCount; i++) {
+            lineLengths[i] = countNonWhitespace(extractedText, lineStarts[i], lineEnds[i]); // 移除空白字符
         }
 
         // 计算平均字数
         int sum = 0;
-        for (int length : lineLengths) {
-            sum += length;
+        for (int i = 0; i < lineCount; i++) {
+            sum += lineLengths[i];
         }
-        double averageLength = (double) sum / split.length;
+        double averageLength = (double) sum / lineCount;
         // 过滤满行并计算平均字数
-        for (int length : lineLengths) {
-            if (length >= averageLength) { // 假设长度大于等于平均长度的为满行
-                totalLength += length;
+        for (int i = 0; i < lineCount; i++) {
+            if (lineLengths[i] >= averageLength) { // 假设长度大于等于平均长度的为满行
+                totalLength += lineLengths[i];
                 count++;
             }
         }
         int fullLineAverageLength = totalLength / count;
-//        System.out.println("Average length of full lines: " + fullLineAverageLength);
+
         //用于储存处理后是行数据
-        StringBuilder dealContent = new StringBuilder();
+        StringBuilder dealContent = new StringBuilder(textLength);
+        //圆圈序号判断时存放删除全角空格后的行
+        StringBuilder scratch = new StringBuilder();
+        Matcher headingMatcher = HEADING_PATTERN.matcher("");
+        Matcher circledMatcher = CIRCLED_PATTERN.matcher(scratch);
         //遍历处理行数据
-        for (String item: split){
-            if (item.trim().matches("^(\\d+\\.|\\d+、|\\d+\\)|（[一二三四五六七八九十]）|[一二三四五六七八九十] |第([一二三四五六七八九十])|[一二三四五六七八九十]、|\\([一二三四五六七八九十]\\)、|\\(\\d+\\)|①|②|③|④|⑤|⑥|⑦|⑧|⑨).*") && item.replaceAll("\\s", "").length() < fullLineAverageLength-2){
+        for (int i = 0; i < lineCount; i++) {
+            int start = lineStarts[i];
+            int end = lineEnds[i];
+            // 等价于String.trim()后的区间
+            int trimStart = start;
+            int trimEnd = end;
+            while (trimStart < trimEnd && extractedText.charAt(trimStart) <= ' ') {
+                trimStart++;
+            }
+            while (trimEnd > trimStart && extractedText.charAt(trimEnd - 1) <= ' ') {
+                trimEnd--;
+            }
+
+            if (lineLengths[i] < fullLineAverageLength - 2
+                    && trimStart < trimEnd && isHeadingStart(extractedText.charAt(trimStart))
+                    && headingMatcher.reset(extractedText).region(trimStart, trimEnd).matches()) {
                 //1. 行以常见序号开头的，且行字数未达到平均最大行字数的，视为标题,则换行
                 //先判断前一个item是否以换行符结尾，如果不是则加上
-                if (dealContent.length()>0 && !dealContent.subSequence(dealContent.length() - 1, dealContent.length()).equals("\n")){
-                    dealContent.append("\n");
+                if (dealContent.length() > 0 && dealContent.charAt(dealContent.length() - 1) != '\n') {
+                    dealContent.append('\n');
                 }
-                dealContent.append(item.trim()).append("\n");
-            }else if (item.replaceAll(" ", "").trim().matches("(^①|^②|^③|^④|^⑤|^⑥|^⑦|^⑧|^⑨).*")){
+                dealContent.append(extractedText, trimStart, trimEnd).append('\n');
+            } else if (startsWithCircled(extractedText, start, end, scratch)
+                    && circledMatcher.reset(scratch).matches()) {
                 //先判断dealContent是否为空，不为空才操作
-                if (dealContent.length()!=0){
-                    //当以圆圈序号开头，直接判断前一个item是否以换行符结尾，如果不是则加上
-                    if (!dealContent.subSequence(dealContent.length() - 1, dealContent.length()).equals("\n")){
-                        dealContent.append("\n");
-                    }
+                //当以圆圈序号开头，直接判断前一个item是否以换行符结尾，如果不是则加上
+                if (dealContent.length() > 0 && dealContent.charAt(dealContent.length() - 1) != '\n') {
+                    dealContent.append('\n');
                 }
                 //删除行内空及不可见符号
-                item = item.replaceAll("\\s", "").replaceAll(" ", "");
-                dealContent.append(item.trim());
-            }else if (item.trim().matches(".*[。！：:;；①②③④⑤⑥⑦⑧⑨]$")&& item.replaceAll("\\s", "").length() < fullLineAverageLength){
+                appendCompact(dealContent, extractedText, start, end);
+            } else if (lineLengths[i] < fullLineAverageLength
+                    && endsWithParagraphMark(extractedText, trimStart, trimEnd)) {
                 //2. 以。！：:;；①②③④⑤⑥⑦⑧⑨结尾，未填满整行的，直接视为段落，则换行
-                dealContent.append(item.trim()).append("\n");
-            }else {
+                dealContent.append(extractedText, trimStart, trimEnd).append('\n');
+            } else {
                 //3. 其余全部换行都均进行合并不换行
                 //删除行内空及不可见符号
-                item = item.replaceAll("\\s", "").replaceAll(" ", "");
-                dealContent.append(item.trim());
+                appendCompact(dealContent, extractedText, start, end);
             }
         }
-        outputStream.write(dealContent.toString());
+        return dealContent.toString();
+    }
+
+    /**
+     * 与\s一致的空白字符：空格、\t、\n、\x0B、\f、\r
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    /**
+     * 统计区间内非空白字符数，等价于replaceAll("\\s", "").length()
+     */
+    private static int countNonWhitespace(String text, int start, int end) {
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            if (!isWhitespace(text.charAt(i))) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * 标题正则各分支可能的首字符，用于在执行正则前快速排除
+     */
+    private static boolean isHeadingStart(char c) {
+        return (c >= '0' && c <= '9') || c == '（' || c == '(' || c == '第' || isCircled(c)
+                || "一二三四五六七八九十".indexOf(c) >= 0;
+    }
+
+    private static boolean isCircled(char c) {
+        return c >= '①' && c <= '⑨';
+    }
+
+    /**
+     * 删除全角空格并去掉首尾空白后是否以圆圈序号开头；是则把该结果写入scratch供正则校验
+     */
+    private static boolean startsWithCircled(String text, int start, int end, StringBuilder scratch) {
+        int i = start;
+        while (i < end && (text.charAt(i) <= ' ' || text.charAt(i) == EM_SPACE)) {
+            i++;
+        }
+        if (i == end || !isCircled(text.charAt(i))) {
+            return false;
+        }
+        scratch.setLength(0);
+        for (int j = i; j < end; j++) {
+            char c = text.charAt(j);
+            if (c != EM_SPACE) {
+                scratch.append(c);
+            }
+        }
+        int len = scratch.length();
+        while (len > 0 && scratch.charAt(len - 1) <= ' ') {
+            len--;
+        }
+        scratch.setLength(len);
+        return true;
+    }
+
+    /**
+     * 去掉首尾空白后是否以段落结束符结尾，等价于matches(".*[。！：:;；①②③④⑤⑥⑦⑧⑨]$")
+     */
+    private static boolean endsWithParagraphMark(String text, int trimStart, int trimEnd) {
+        if (trimStart == trimEnd) {
+            return false;
+        }
+        char last = text.charAt(trimEnd - 1);
+        if ("。！：:;；".indexOf(last) < 0 && !isCircled(last)) {
+            return false;
+        }
+        // "."不匹配行终止符
+        for (int i = trimStart; i < trimEnd - 1; i++) {
+            char c = text.charAt(i);
+            if (c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 追加删除空白字符与全角空格并去掉首尾空白后的行，
+     * 等价于replaceAll("\\s", "").replaceAll(全角空格, "").trim()
+     */
+    private static void appendCompact(StringBuilder out, String text, int start, int end) {
+        int first = start;
+        while (first < end && !isKeptVisible(text.charAt(first))) {
+            first++;
+        }
+        int last = end - 1;
+        while (last >= first && !isKeptVisible(text.charAt(last))) {
+            last--;
+        }
+        for (int i = first; i <= last; i++) {
+            char c = text.charAt(i);
+            if (!isWhitespace(c) && c != EM_SPACE) {
+                out.append(c);
+            }
+        }
+    }
+
+    /**
+     * 删除空白字符与全角空格后保留、且不会被trim去掉的字符
+     */
+    private static boolean isKeptVisible(char c) {
+        return c > ' ' && c != EM_SPACE;
     }
 //
 //    // 清理文本中的换行符
@@ -83,80 +83,88 @@ public class DocUtils {
                 .build();
         Response response = client.newCall(request).execute();
         if (response.isSuccessful()) {
-            String html = response.body().string();
-            Document document = Jsoup.parse(html);
-            Element tbody = document.body().getElementById("td");
-            OpacDocInfo opacDoc = new OpacDocInfo();
-            //2.解析相关字段信息
-            Elements tr = null;
-            if (tbody != null) {
-                tr = tbody.getElementsByTag("tr");
-                for (Element element : tr) {
-                    if (element.child(0).text().equals("题名与责任")) {
-                        //title
-                        String title = "";
-                        //判断是否存在/
-                        if (element.child(1).text().contains("/")) {
-                            title = element.child(1).text().split("/")[0].replace("[专著]", "").replaceAll("\\s+", "");
-                        } else {
-                            title = element.child(1).text();
-                        }
-                        opacDoc.setTitle(title);
-                    } else if (element.child(0).text().equals("出版项")) {
-                        System.out.println(element.child(1).text());
-                        if (element.child(1).text().contains(":")) {
-                            //以":"分隔并取最后一个元素
-                            String[] split = element.child(1).text().split(":");
-                            String item = split[split.length - 1];
-                            opacDoc.setPress(item.split(",")[0].trim());
-                            opacDoc.setYear(item.split(",")[1].trim());
-
-                        } else {
-                            System.out.println("出版项--待核实！");
-                            System.out.println(element.child(1).text());
-                        }
-                    } else if (element.child(0).text().equals("载体形态项")) {
-                        String pageSize = "";
-                        String resultData = ReUtil.get("(\\d+)页", element.child(1).text(), 1);
-                        if (resultData != null) {
-                            pageSize = resultData;
-                        }
-                        opacDoc.setPageSize(pageSize);
-                    } else if (element.child(0).text().equals("内容提要")) {
-                        String summary = element.child(1).text();
-                        opacDoc.setSummary(summary);
-                    } else if (element.child(0).text().equals("主题")) {
-                        String topic = element.child(1).text().replaceAll("\\s+", "");
-                        opacDoc.setTopic(topic);
-                    } else if (element.child(0).text().equals("中图分类号")) {
-                        opacDoc.setCn(element.child(1).text().trim());
-                    } else if (element.child(0).text().equals("著者")) {
-                        opacDoc.setAuthor(element.child(1).text().trim().split(" ")[0]);
-                    } else if (element.child(0).text().equals("丛编项")) {
-                        opacDoc.setSeries(element.child(1).text().trim());
-                    } else if (element.child(0).text().trim().equals("")) {
-                        if (element.child(1).text().contains("主编") || element.child(1).text().contains("著")) {
-                            System.out.println("作者");
-                            opacDoc.setAuthor(opacDoc.getAuthor() + "," + element.child(1).text().trim().split(" ")[0]);
-                        } else if (element.child(1).text().contains("-")) {
-                            System.out.println("主题词");
-                            opacDoc.setTopic(opacDoc.getTopic() + "," + element.child(1).text().replaceAll("\\s+", ""));
-                        } else if (element.child(1).text().contains(".")) {
-                            System.out.println("中图分类号");
-                            opacDoc.setCn(opacDoc.getCn() + "," + element.child(1).text().trim());
-                        }
+            return parseOpacHtml(response.body().string());
+        }else {
+            log.info("请求失败");
+        }
+        return null;
+    }
+
+    /**
+     * 解析OPAC检索结果页面，不涉及网络请求
+     * @param html 检索结果页面HTML
+     * @return 图书信息，页面中没有记录时返回null
+     */
+    public static OpacDocInfo parseOpacHtml(String html) {
+        Document document = Jsoup.parse(html);
+        Element tbody = document.body().getElementById("td");
+        OpacDocInfo opacDoc = new OpacDocInfo();
+        //2.解析相关字段信息
+        Elements tr = null;
+        if (tbody != null) {
+            tr = tbody.getElementsByTag("tr");
+            for (Element element : tr) {
+                if (element.child(0).text().equals("题名与责任")) {
+                    //title
+                    String title = "";
+                    //判断是否存在/
+                    if (element.child(1).text().contains("/")) {
+                        title = element.child(1).text().split("/")[0].replace("[专著]", "").replaceAll("\\s+", "");
+                    } else {
+                        title = element.child(1).text();
+                    }
+                    opacDoc.setTitle(title);
+                } else if (element.child(0).text().equals("出版项")) {
+                    log.debug("出版项: {}", element.child(1).text());
+                    if (element.child(1).text().contains(":")) {
+                        //以":"分隔并取最后一个元素
+                        String[] split = element.child(1).text().split(":");
+                        String item = split[split.length - 1];
+                        opacDoc.setPress(item.split(",")[0].trim());
+                        opacDoc.setYear(item.split(",")[1].trim());
+
+                    } else {
+                        log.info("出版项--待核实！{}", element.child(1).text());
+                    }
+                } else if (element.child(0).text().equals("载体形态项")) {
+                    String pageSize = "";
+                    String resultData = ReUtil.get("(\\d+)页", element.child(1).text(), 1);
+                    if (resultData != null) {
+                        pageSize = resultData;
+                    }
+                    opacDoc.setPageSize(pageSize);
+                } else if (element.child(0).text().equals("内容提要")) {
+                    String summary = element.child(1).text();
+                    opacDoc.setSummary(summary);
+                } else if (element.child(0).text().equals("主题")) {
+                    String topic = element.child(1).text().replaceAll("\\s+", "");
+                    opacDoc.setTopic(topic);
+                } else if (element.child(0).text().equals("中图分类号")) {
+                    opacDoc.setCn(element.child(1).text().trim());
+                } else if (element.child(0).text().equals("著者")) {
+                    opacDoc.setAuthor(element.child(1).text().trim().split(" ")[0]);
+                } else if (element.child(0).text().equals("丛编项")) {
+                    opacDoc.setSeries(element.child(1).text().trim());
+                } else if (element.child(0).text().trim().equals("")) {
+                    if (element.child(1).text().contains("主编") || element.child(1).text().contains("著")) {
+                        log.debug("作者");
+                        opacDoc.setAuthor(opacDoc.getAuthor() + "," + element.child(1).text().trim().split(" ")[0]);
+                    } else if (element.child(1).text().contains("-")) {
+                        log.debug("主题词");
+                        opacDoc.setTopic(opacDoc.getTopic() + "," + element.child(1).text().replaceAll("\\s+", ""));
+                    } else if (element.child(1).text().contains(".")) {
+                        log.debug("中图分类号");
+                        opacDoc.setCn(opacDoc.getCn() + "," + element.child(1).text().trim());
                     }
-                }
-                return opacDoc;
-            }else {
-                if(document.html().contains("数据库里没有这条请求记录")){
-                    log.info("数据库里没有这条请求记录.");
-                }else {
-                    log.info("未知错误！");
                 }
             }
+            return opacDoc;
         }else {
-            log.info("请求失败");
+            if(document.html().contains("数据库里没有这条请求记录")){
+                log.info("数据库里没有这条请求记录.");
+            }else {
+                log.info("未知错误！");
+            }
         }
         return null;
     }
@@ -0,0 +1,320 @@
+package top.lvpi.utils;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkIngester;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkListener;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import co.elastic.clients.transport.TransportException;
+import lombok.extern.slf4j.Slf4j;
+import top.lvpi.model.dto.es.BulkIndexResult;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于BulkIngester的批量索引器
+ * 按文档数、字节数和时间间隔自动分批发送，限制同时进行的bulk请求数，超过时add阻塞调用方形成背压；
+ * 429按指数退避重新提交，其余失败逐条记录到所属会话的结果中。
+ * 全局共享一个实例，各次导入通过openSession区分各自的文档与结果
+ */
+@Slf4j
+public class EsBulkIndexer implements AutoCloseable {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private static final int CONFLICT = 409;
+
+    /**
+     * 单次重试的最长退避时间
+     */
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private final BulkIngester<Context> ingester;
+
+    private final ScheduledExecutorService retryScheduler;
+
+    private final int maxRetries;
+
+    private final long retryBackoffMs;
+
+    private final long awaitTimeoutMs;
+
+    /**
+     * @param client                ES客户端
+     * @param maxOperations         单个bulk请求的最大文档数
+     * @param maxSizeBytes          单个bulk请求的最大字节数
+     * @param flushIntervalMs       未满批时的最长等待时间（毫秒）
+     * @param maxConcurrentRequests 同时进行的bulk请求数上限
+     * @param maxRetries            429的最大重试次数
+     * @param retryBackoffMs        首次重试的退避时间（毫秒），之后每次翻倍
+     * @param awaitTimeoutMs        会话等待全部文档完成的时限（毫秒）
+     */
+    public EsBulkIndexer(ElasticsearchClient client, int maxOperations, long maxSizeBytes, long flushIntervalMs,
+                         int maxConcurrentRequests, int maxRetries, long retryBackoffMs, long awaitTimeoutMs) {
+        this.maxRetries = maxRetries;
+        this.retryBackoffMs = retryBackoffMs;
+        this.awaitTimeoutMs = awaitTimeoutMs;
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "es-bulk-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ingester = BulkIngester.of(b -> b
+                .client(client)
+                .maxOperations(maxOperations)
+                .maxSize(maxSizeBytes)
+                .maxConcurrentRequests(maxConcurrentRequests)
+                .flushInterval(flushIntervalMs, TimeUnit.MILLISECONDS)
+                .listener(new Listener()));
+    }
+
+    /**
+     * 开始一次批量索引
+     */
+    public Session openSession() {
+        return new Session();
+    }
+
+    /**
+     * 发送缓冲中的文档并等待进行中的请求结束
+     */
+    @Override
+    public void close() {
+        ingester.close();
+        retryScheduler.shutdownNow();
+    }
+
+    private void retry(BulkOperation operation, Context context) {
+        context.session.retried.incrementAndGet();
+        long backoff = Math.min(retryBackoffMs << context.attempt, MAX_BACKOFF_MS);
+        // 不能在回调线程中调用add：并发请求数已满时add会阻塞，而回调线程正是释放请求数的线程
+        retryScheduler.schedule(() -> {
+            try {
+                ingester.add(operation, new Context(context.session, context.id, context.attempt + 1));
+            } catch (Exception e) {
+                context.session.fail(context.id, TOO_MANY_REQUESTS, "重新提交失败: " + e.getMessage());
+            }
+        }, backoff, TimeUnit.MILLISECONDS);
+    }
+
+    private boolean canRetry(int status, Context context) {
+        return status == TOO_MANY_REQUESTS && context.attempt < maxRetries;
+    }
+
+    private static int statusOf(Throwable failure) {
+        if (failure instanceof ElasticsearchException) {
+            return ((ElasticsearchException) failure).status();
+        }
+        if (failure instanceof TransportException) {
+            return ((TransportException) failure).statusCode();
+        }
+        return 0;
+    }
+
+    private class Listener implements BulkListener<Context> {
+
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request, List<Context> contexts) {
+            log.debug("发送bulk请求 #{}，文档数: {}", executionId, contexts.size());
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, List<Context> contexts, BulkResponse response) {
+            List<BulkResponseItem> items = response.items();
+            for (int i = 0; i < contexts.size(); i++) {
+                Context context = contexts.get(i);
+                BulkResponseItem item = items.get(i);
+                if (item.error() == null) {
+                    context.session.succeed();
+                } else if (item.status() == CONFLICT && item.operationType() == OperationType.Create) {
+                    // 索引中已有该文档，保留已有的版本
+                    context.session.skip();
+                } else if (canRetry(item.status(), context)) {
+                    retry(request.operations().get(i), context);
+                } else {
+                    context.session.fail(context.id, item.status(), item.error().reason());
+                }
+            }
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, List<Context> contexts, Throwable failure) {
+            int status = statusOf(failure);
+            log.warn("bulk请求 #{} 失败，状态码: {}，文档数: {}", executionId, status, contexts.size(), failure);
+            for (int i = 0; i < contexts.size(); i++) {
+                Context context = contexts.get(i);
+                if (canRetry(status, context)) {
+                    retry(request.operations().get(i), context);
+                } else {
+                    context.session.fail(context.id, status, failure.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 单个文档在BulkIngester中携带的上下文
+     */
+    private static final class Context {
+
+        private final Session session;
+
+        private final String id;
+
+        /**
+         * 已重试次数
+         */
+        private final int attempt;
+
+        private Context(Session session, String id, int attempt) {
+            this.session = session;
+            this.id = id;
+            this.attempt = attempt;
+        }
+    }
+
+    /**
+     * 一次批量索引的文档集合，线程安全
+     */
+    public final class Session {
+
+        private final AtomicInteger total = new AtomicInteger();
+
+        private final AtomicInteger succeeded = new AtomicInteger();
+
+        private final AtomicInteger retried = new AtomicInteger();
+
+        /**
+         * create时文档已存在而跳过的文档数
+         */
+        private final AtomicInteger skipped = new AtomicInteger();
+
+        /**
+         * 已提交但尚未得到最终结果的文档数
+         */
+        private final AtomicInteger pending = new AtomicInteger();
+
+        private final ConcurrentLinkedQueue<BulkIndexResult.Failure> failures = new ConcurrentLinkedQueue<>();
+
+        private final Object lock = new Object();
+
+        private Session() {
+        }
+
+        /**
+         * 提交一条index操作，并发请求数已满时阻塞
+         *
+         * @param index    索引名
+         * @param id       文档ID
+         * @param routing  路由值，为null时按文档ID路由
+         * @param document 文档内容，按ES客户端的JSON映射序列化
+         */
+        public void index(String index, String id, String routing, Object document) {
+            add(BulkOperation.of(b -> b.index(i -> i.index(index).id(id).routing(routing).document(document))), id);
+        }
+
+        /**
+         * 提交一条create操作，文档已存在时保留已有文档并计入skipped，不算失败；并发请求数已满时阻塞
+         *
+         * @param index    索引名
+         * @param id       文档ID
+         * @param routing  路由值，为null时按文档ID路由
+         * @param document 文档内容，按ES客户端的JSON映射序列化
+         */
+        public void create(String index, String id, String routing, Object document) {
+            add(BulkOperation.of(b -> b.create(c -> c.index(index).id(id).routing(routing).document(document))), id);
+        }
+
+        /**
+         * 提交一条delete操作，文档不存在不算失败，并发请求数已满时阻塞
+         *
+         * @param index   索引名
+         * @param id      文档ID
+         * @param routing 路由值，须与写入时一致，为null时按文档ID路由
+         */
+        public void delete(String index, String id, String routing) {
+            add(BulkOperation.of(b -> b.delete(d -> d.index(index).id(id).routing(routing))), id);
+        }
+
+        private void add(BulkOperation operation, String id) {
+            total.incrementAndGet();
+            pending.incrementAndGet();
+            try {
+                ingester.add(operation, new Context(this, id, 0));
+            } catch (RuntimeException e) {
+                done();
+                throw e;
+            }
+        }
+
+        /**
+         * 发送剩余文档并等待本会话的全部文档得到最终结果
+         *
+         * @throws IOException 超过等待时限或等待被中断
+         */
+        public BulkIndexResult await() throws IOException {
+            ingester.flush();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(awaitTimeoutMs);
+            synchronized (lock) {
+                while (pending.get() > 0) {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) {
+                        throw new IOException("等待批量索引完成超时，未完成文档数: " + pending.get());
+                    }
+                    try {
+                        lock.wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("等待批量索引完成时被中断", e);
+                    }
+                }
+            }
+            BulkIndexResult result = new BulkIndexResult();
+            result.setTotal(total.get());
+            result.setSucceeded(succeeded.get());
+            result.setRetried(retried.get());
+            result.setSkipped(skipped.get());
+            result.setFailures(new ArrayList<>(failures));
+            result.setFailed(result.getFailures().size());
+            return result;
+        }
+
+        private void succeed() {
+            succeeded.incrementAndGet();
+            done();
+        }
+
+        private void skip() {
+            skipped.incrementAndGet();
+            done();
+        }
+
+        private void fail(String id, int status, String reason) {
+            BulkIndexResult.Failure failure = new BulkIndexResult.Failure();
+            failure.setId(id);
+            failure.setStatus(status);
+            failure.setReason(reason);
+            failures.add(failure);
+            done();
+        }
+
+        private void done() {
+            if (pending.decrementAndGet() == 0) {
+                synchronized (lock) {
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package top.lvpi.utils;
+
+import java.io.IOException;
+
+/**
+ * 单个文档的文本提取时限与取消控制，供串行及并行提取任务共享
+ */
+public class ExtractBudget {
+
+    /**
+     * 不限时、不可取消
+     */
+    public static final ExtractBudget NONE = new ExtractBudget(0, 0, null);
+
+    private final long pageTimeoutNanos;
+
+    /**
+     * 文档截止时间（System.nanoTime），0表示不限
+     */
+    private final long docDeadlineNanos;
+
+    private final CancellationToken token;
+
+    private ExtractBudget(long pageTimeoutNanos, long docDeadlineNanos, CancellationToken token) {
+        this.pageTimeoutNanos = pageTimeoutNanos;
+        this.docDeadlineNanos = docDeadlineNanos;
+        this.token = token;
+    }
+
+    /**
+     * 从当前时刻开始计时
+     *
+     * @param pageTimeoutMs 单页时限（毫秒），小于等于0表示不限
+     * @param docTimeoutMs  单个文档时限（毫秒），小于等于0表示不限
+     * @param token         取消标记，可为null
+     */
+    public static ExtractBudget start(long pageTimeoutMs, long docTimeoutMs, CancellationToken token) {
+        long pageTimeoutNanos = pageTimeoutMs > 0 ? pageTimeoutMs * 1_000_000L : 0;
+        long docDeadlineNanos = docTimeoutMs > 0 ? System.nanoTime() + docTimeoutMs * 1_000_000L : 0;
+        return new ExtractBudget(pageTimeoutNanos, docDeadlineNanos, token);
+    }
+
+    /**
+     * 计算从现在开始处理一页的截止时间，0表示不限
+     */
+    public long newPageDeadline() {
+        return pageTimeoutNanos > 0 ? System.nanoTime() + pageTimeoutNanos : 0;
+    }
+
+    /**
+     * 已取消或超过文档时限时抛出异常
+     */
+    public void checkAborted() throws AbortedException {
+        if (token != null && token.isCancelled()) {
+            throw new AbortedException("文本提取已取消", true);
+        }
+        if (docDeadlineNanos != 0 && System.nanoTime() - docDeadlineNanos > 0) {
+            throw new AbortedException("超过单个文档的文本提取时限", false);
+        }
+    }
+
+    /**
+     * 检查单页时限与整体状态
+     *
+     * @param pageDeadlineNanos newPageDeadline返回的截止时间
+     */
+    public void checkPage(long pageDeadlineNanos) throws IOException {
+        checkAborted();
+        if (pageDeadlineNanos != 0 && System.nanoTime() - pageDeadlineNanos > 0) {
+            throw new PageTimeoutException("超过单页文本提取时限");
+        }
+    }
+
+    /**
+     * 整个文档的提取被中止：已取消或超过文档时限
+     */
+    public static class AbortedException extends IOException {
+
+        private final boolean cancelled;
+
+        public AbortedException(String message, boolean cancelled) {
+            super(message);
+            this.cancelled = cancelled;
+        }
+
+        /**
+         * 是否因取消而中止
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    /**
+     * 单页处理超时，该页被放弃，继续处理后续页
+     */
+    public static class PageTimeoutException extends IOException {
+
+        public PageTimeoutException(String message) {
+            super(message);
+        }
+    }
+}
@@ -1,19 +1,51 @@
 package top.lvpi.utils;
 
+import lombok.extern.slf4j.Slf4j;
+import top.lvpi.model.dto.pdf.PdfIngestResult;
 import top.lvpi.model.entity.DocSection;
+import org.apache.pdfbox.contentstream.PDContentStream;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.pdfbox.rendering.PDFRenderer;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
+@Slf4j
 public class PDFUtils {
 
+    /**
+     * 检查文本层时表单XObject的最大嵌套深度
+     */
+    private static final int MAX_FORM_DEPTH = 8;
+
     /**
      * 提取PDF文本到章节列表
      *
@@ -28,10 +60,303 @@ public class PDFUtils {
         PDFTextStripper stripper = new PDFTextStripper();
 
         int totalPages = document.getNumberOfPages();
-        for (int i = 1; i <= totalPages; i++) {
+        extractPages(document, stripper, 1, totalPages, docId, title, sections::add, null);
+
+        document.close();
+        return sections;
+    }
+
+    /**
+     * 并行提取PDF文本到章节列表
+     * 按页码区间切分为若干块，每个工作线程使用独立的PDDocument和PDFTextStripper，
+     * 结果按页码顺序合并，与串行提取的结果一致
+     *
+     * @param pdfBytes  PDF文件内容
+     * @param docId     图书ID
+     * @param title     文档名称
+     * @param chunkSize 每块包含的页数
+     * @param pool      执行提取任务的线程池
+     * @return 章节列表
+     * @throws IOException IO异常
+     */
+    public static List<DocSection> extractTextToSectionsParallel(byte[] pdfBytes, Long docId, String title,
+                                                                 int chunkSize, ForkJoinPool pool) throws IOException {
+        return ingest(pdfBytes, docId, title, false, chunkSize, pool).getSections();
+    }
+
+    /**
+     * 单次加载PDF，同时得到页数、分页章节和首页封面
+     *
+     * @param pdfBytes  PDF文件内容
+     * @param docId     图书ID
+     * @param title     文档名称
+     * @param withCover 是否导出首页封面
+     * @param chunkSize 每块包含的页数
+     * @param pool      执行提取任务的线程池，为null时串行提取
+     * @return 解析结果
+     * @throws IOException IO异常
+     */
+    public static PdfIngestResult ingest(byte[] pdfBytes, Long docId, String title, boolean withCover,
+                                         int chunkSize, ForkJoinPool pool) throws IOException {
+        List<DocSection> sections = new ArrayList<>();
+        PdfIngestResult result = ingest(PdfSource.ofBytes(pdfBytes), docId, title, withCover, chunkSize, pool,
+                sections::add);
+        result.setSections(sections);
+        return result;
+    }
+
+    /**
+     * 章节接收者，按页码顺序接收提取出的章节
+     */
+    @FunctionalInterface
+    public interface SectionSink {
+        /**
+         * 接收一个章节
+         */
+        void accept(DocSection section);
+
+        /**
+         * 小于等于lastPage的页均已处理完毕，其章节都已交给accept
+         */
+        default void pagesCompleted(int lastPage) {
+        }
+
+        /**
+         * 这些页超过单页时限被放弃，在对应区间的pagesCompleted之前调用
+         */
+        default void pagesFailed(List<Integer> pages) {
+        }
+    }
+
+    /**
+     * 单次加载PDF，提取出的章节按页码顺序逐个交给sink处理，不在内存中保留整本书的章节
+     *
+     * @see #ingest(PdfSource, Long, String, boolean, int, int, ForkJoinPool, SectionSink, ExtractBudget)
+     */
+    public static PdfIngestResult ingest(PdfSource source, Long docId, String title, boolean withCover,
+                                         int chunkSize, ForkJoinPool pool, SectionSink sink) throws IOException {
+        return ingest(source, docId, title, withCover, 1, chunkSize, pool, sink, ExtractBudget.NONE);
+    }
+
+    /**
+     * 单次加载PDF，从startPage开始提取，章节按页码顺序逐个交给sink处理，不在内存中保留整本书的章节
+     * 第一块页码区间在已加载的文档上提取，其余区间在线程池中使用独立文档并行提取，
+     * 同时在途的区间数受线程池并行度限制；每块输出完毕后调用sink.pagesCompleted，sink只在调用线程上执行。
+     * 超过单页时限的页被放弃并记入失败页；取消或超过文档时限时抛出ExtractBudget.AbortedException
+     *
+     * @param source    PDF数据源
+     * @param docId     图书ID
+     * @param title     文档名称
+     * @param withCover 是否导出首页封面
+     * @param startPage 起始页码，从1开始，用于断点续提
+     * @param chunkSize 每块包含的页数
+     * @param pool      执行提取任务的线程池，为null时串行提取
+     * @param sink      章节接收者
+     * @param budget    提取时限与取消控制
+     * @return 解析结果，sections为null
+     * @throws IOException IO异常
+     */
+    public static PdfIngestResult ingest(PdfSource source, Long docId, String title, boolean withCover, int startPage,
+                                         int chunkSize, ForkJoinPool pool, SectionSink sink,
+                                         ExtractBudget budget) throws IOException {
+        PdfIngestResult result = new PdfIngestResult();
+        try (PDDocument document = source.load()) {
+            int totalPages = document.getNumberOfPages();
+            result.setPageCount(totalPages);
+
+            // 封面导出失败不影响文本提取
+            if (withCover && totalPages > 0) {
+                try {
+                    result.setCoverImage(renderCover(document));
+                } catch (Exception e) {
+                    log.error("导出PDF封面失败，图书ID: {}", docId, e);
+                }
+            }
+
+            int firstPage = Math.max(1, startPage);
+            int step = Math.max(1, chunkSize);
+            int sectionCount = 0;
+            ExtractState state = new ExtractState(budget);
+            result.setProcessedPageCount(Math.max(0, totalPages - firstPage + 1));
+            // 只有一块或未提供线程池时，直接在当前文档上逐块串行提取
+            if (totalPages - firstPage + 1 <= step || pool == null) {
+                PDFTextStripper stripper = new BudgetedTextStripper(budget);
+                for (int start = firstPage; start <= totalPages; start += step) {
+                    int end = Math.min(start + step - 1, totalPages);
+                    List<DocSection> chunk = new ArrayList<>();
+                    extractPages(document, stripper, start, end, docId, title, chunk::add, state);
+                    sectionCount += emit(chunk, end, sink, state);
+                }
+                state.fill(result, sectionCount);
+                return result;
+            }
+
+            // 第一块之外的页码区间提交到线程池，最多同时在途window块
+            int window = Math.max(1, pool.getParallelism()) * 2;
+            Deque<ForkJoinTask<List<DocSection>>> inFlight = new ArrayDeque<>();
+            int nextStart = firstPage + step;
+            try {
+                while (inFlight.size() < window && nextStart <= totalPages) {
+                    inFlight.addLast(submitChunk(pool, source, nextStart, step, totalPages, docId, title, state));
+                    nextStart += step;
+                }
+
+                // 按页码顺序输出结果，第一块复用当前文档
+                int end = firstPage + step - 1;
+                List<DocSection> first = new ArrayList<>();
+                extractPages(document, new BudgetedTextStripper(budget), firstPage, end, docId, title, first::add, state);
+                sectionCount += emit(first, end, sink, state);
+                while (!inFlight.isEmpty()) {
+                    budget.checkAborted();
+                    List<DocSection> chunk = inFlight.pollFirst().get();
+                    if (nextStart <= totalPages) {
+                        inFlight.addLast(submitChunk(pool, source, nextStart, step, totalPages, docId, title, state));
+                        nextStart += step;
+                    }
+                    end = Math.min(end + step, totalPages);
+                    sectionCount += emit(chunk, end, sink, state);
+                }
+            } catch (InterruptedException e) {
+                inFlight.forEach(task -> task.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new IOException("PDF文本提取被中断", e);
+            } catch (ExecutionException e) {
+                inFlight.forEach(task -> task.cancel(true));
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException("PDF文本提取失败: " + cause.getMessage(), cause);
+            } catch (IOException | RuntimeException e) {
+                inFlight.forEach(task -> task.cancel(true));
+                throw e;
+            }
+            state.fill(result, sectionCount);
+        }
+        return result;
+    }
+
+    /**
+     * 将一块页码区间的章节交给sink，报告lastPage之前新增的失败页，并通知该区间已处理完毕
+     */
+    private static int emit(List<DocSection> chunk, int lastPage, SectionSink sink, ExtractState state) {
+        for (DocSection section : chunk) {
+            sink.accept(section);
+        }
+        List<Integer> failed = state.takeFailedPages(lastPage);
+        if (!failed.isEmpty()) {
+            sink.pagesFailed(failed);
+        }
+        sink.pagesCompleted(lastPage);
+        return chunk.size();
+    }
+
+    /**
+     * 只提取指定的页，用于重试上次超时放弃的页；串行执行，章节按页码顺序交给sink，
+     * 仍然失败的页通过sink.pagesFailed报告，不调用sink.pagesCompleted。超出总页数的页码被忽略
+     *
+     * @param source PDF数据源
+     * @param docId  图书ID
+     * @param title  文档名称
+     * @param pages  要提取的页码，从1开始
+     * @param sink   章节接收者
+     * @param budget 提取时限与取消控制
+     * @return 解析结果，sections为null
+     * @throws IOException IO异常
+     */
+    public static PdfIngestResult ingestPages(PdfSource source, Long docId, String title, List<Integer> pages,
+                                              SectionSink sink, ExtractBudget budget) throws IOException {
+        PdfIngestResult result = new PdfIngestResult();
+        try (PDDocument document = source.load()) {
+            int totalPages = document.getNumberOfPages();
+            result.setPageCount(totalPages);
+            ExtractState state = new ExtractState(budget);
+            PDFTextStripper stripper = new BudgetedTextStripper(budget);
+            List<Integer> sorted = new ArrayList<>(new TreeSet<>(pages));
+            int sectionCount = 0;
+            int processed = 0;
+            for (int page : sorted) {
+                if (page < 1 || page > totalPages) {
+                    continue;
+                }
+                List<DocSection> chunk = new ArrayList<>();
+                extractPages(document, stripper, page, page, docId, title, chunk::add, state);
+                chunk.forEach(sink::accept);
+                sectionCount += chunk.size();
+                processed++;
+            }
+            result.setProcessedPageCount(processed);
+            state.fill(result, sectionCount);
+            if (!result.getFailedPages().isEmpty()) {
+                sink.pagesFailed(result.getFailedPages());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 提交从startPage开始的一块页码区间
+     */
+    private static ForkJoinTask<List<DocSection>> submitChunk(ForkJoinPool pool, PdfSource source, int startPage,
+                                                              int step, int totalPages, Long docId, String title,
+                                                              ExtractState state) {
+        int endPage = Math.min(startPage + step - 1, totalPages);
+        return pool.submit(() -> extractChunk(source, startPage, endPage, docId, title, state));
+    }
+
+    /**
+     * 提取指定页码区间的文本，供并行任务调用
+     */
+    private static List<DocSection> extractChunk(PdfSource source, int startPage, int endPage, Long docId,
+                                                 String title, ExtractState state) throws IOException {
+        List<DocSection> sections = new ArrayList<>();
+        try (PDDocument document = source.load()) {
+            PDFTextStripper stripper = new BudgetedTextStripper(state.budget);
+            extractPages(document, stripper, startPage, endPage, docId, title, sections::add, state);
+        }
+        return sections;
+    }
+
+    /**
+     * 逐页提取文本，跳过空白页；没有文本层的纯图片页不执行文本提取，超过单页时限的页记为失败页
+     *
+     * @param state 提取状态，可为null
+     */
+    private static void extractPages(PDDocument document, PDFTextStripper stripper, int startPage, int endPage,
+                                     Long docId, String title, Consumer<DocSection> sink,
+                                     ExtractState state) throws IOException {
+        for (int i = startPage; i <= endPage; i++) {
+            if (state != null) {
+                state.budget.checkAborted();
+            }
+            boolean textLayer;
+            try {
+                textLayer = hasTextLayer(document.getPage(i - 1), state != null ? state.budget : ExtractBudget.NONE);
+            } catch (ExtractBudget.PageTimeoutException e) {
+                log.warn("图书 {} 第 {} 页检查文本层超过单页时限，已跳过", docId, i);
+                if (state != null) {
+                    state.failedPages.add(i);
+                }
+                continue;
+            }
+            if (!textLayer) {
+                if (state != null) {
+                    state.imageOnlyPages.incrementAndGet();
+                }
+                continue;
+            }
             stripper.setStartPage(i);
             stripper.setEndPage(i);
-            String pageText = stripper.getText(document);
+            String pageText;
+            try {
+                pageText = stripper.getText(document);
+            } catch (ExtractBudget.PageTimeoutException e) {
+                log.warn("图书 {} 第 {} 页超过单页文本提取时限，已跳过", docId, i);
+                if (state != null) {
+                    state.failedPages.add(i);
+                }
+                continue;
+            }
 
             // 如果内容为空、null、空字符串、空格或只有换行符，则跳过
             if (pageText == null || pageText.isEmpty() || pageText.trim().isEmpty() || pageText.trim().equals("\n")|| pageText.trim().equals("\r")) {
@@ -43,11 +368,176 @@ public class PDFUtils {
             section.setPageNum(i);
             section.setContent(pageText);
             section.setTitle(title);
-            sections.add(section);
+            sink.accept(section);
         }
+    }
 
-        document.close();
-        return sections;
+    /**
+     * 一次提取过程中各线程共享的状态
+     */
+    private static final class ExtractState {
+
+        private final ExtractBudget budget;
+
+        /**
+         * 没有文本层的纯图片页数
+         */
+        private final AtomicInteger imageOnlyPages = new AtomicInteger();
+
+        /**
+         * 超时放弃的页码
+         */
+        private final Queue<Integer> failedPages = new ConcurrentLinkedQueue<>();
+
+        /**
+         * 已通过sink报告的失败页，只在调用线程上访问
+         */
+        private final Set<Integer> reportedFailedPages = new HashSet<>();
+
+        private ExtractState(ExtractBudget budget) {
+            this.budget = budget == null ? ExtractBudget.NONE : budget;
+        }
+
+        /**
+         * 取出不大于lastPage且尚未报告的失败页，调用时这些页所在的区间均已提取完毕
+         */
+        private List<Integer> takeFailedPages(int lastPage) {
+            List<Integer> taken = new ArrayList<>();
+            for (Integer page : failedPages) {
+                if (page <= lastPage && reportedFailedPages.add(page)) {
+                    taken.add(page);
+                }
+            }
+            Collections.sort(taken);
+            return taken;
+        }
+
+        private void fill(PdfIngestResult result, int sectionCount) {
+            result.setSectionCount(sectionCount);
+            result.setImageOnlyPageCount(imageOnlyPages.get());
+            List<Integer> failed = new ArrayList<>(failedPages);
+            Collections.sort(failed);
+            result.setFailedPages(failed);
+        }
+    }
+
+    /**
+     * 在处理每个内容流操作符前检查单页时限与取消状态的PDFTextStripper
+     * PDFBox无法中断正在执行的提取，只能在操作符之间协作式地退出
+     */
+    private static final class BudgetedTextStripper extends PDFTextStripper {
+
+        private final ExtractBudget budget;
+
+        private long pageDeadline;
+
+        private BudgetedTextStripper(ExtractBudget budget) throws IOException {
+            this.budget = budget == null ? ExtractBudget.NONE : budget;
+        }
+
+        @Override
+        public String getText(PDDocument doc) throws IOException {
+            pageDeadline = budget.newPageDeadline();
+            return super.getText(doc);
+        }
+
+        @Override
+        protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+            budget.checkPage(pageDeadline);
+            super.processOperator(operator, operands);
+        }
+    }
+
+    /**
+     * 判断页面是否可能包含文本：页面或其绘制的表单XObject中存在字体资源，且内容流中有文本显示操作符（Tj、TJ、'、"）
+     * 只解析内容流的操作符，不做字形与布局计算，检查失败时按有文本处理
+     *
+     * @param page PDF页面
+     * @return 没有文本层时返回false
+     */
+    public static boolean hasTextLayer(PDPage page) {
+        try {
+            return hasTextLayer(page, ExtractBudget.NONE);
+        } catch (IOException e) {
+            // 不限时、不可取消时不会发生
+            return true;
+        }
+    }
+
+    /**
+     * 同hasTextLayer(PDPage)，检查过程受单页时限与取消状态约束
+     * 只进入内容流中由Do操作符实际绘制的表单，每个表单只检查一次，自引用或互相引用的表单不会重复遍历
+     *
+     * @param page   PDF页面
+     * @param budget 提取时限与取消控制
+     * @return 没有文本层时返回false
+     * @throws ExtractBudget.AbortedException     已取消或超过文档时限
+     * @throws ExtractBudget.PageTimeoutException 超过单页时限
+     */
+    public static boolean hasTextLayer(PDPage page, ExtractBudget budget) throws IOException {
+        long pageDeadline = budget.newPageDeadline();
+        Set<COSStream> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        try {
+            return hasTextLayer(page, page.getResources(), budget, pageDeadline, visited, 0);
+        } catch (ExtractBudget.AbortedException | ExtractBudget.PageTimeoutException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            log.debug("检查页面文本层失败，按有文本处理", e);
+            return true;
+        }
+    }
+
+    private static boolean hasTextLayer(PDContentStream stream, PDResources resources, ExtractBudget budget,
+                                        long pageDeadline, Set<COSStream> visited, int depth) throws IOException {
+        if (resources == null || depth > MAX_FORM_DEPTH) {
+            return false;
+        }
+        boolean hasFonts = resources.getFontNames().iterator().hasNext();
+        PDFStreamParser parser = new PDFStreamParser(stream);
+        COSName lastName = null;
+        Object token;
+        while ((token = parser.parseNextToken()) != null) {
+            if (token instanceof COSName) {
+                lastName = (COSName) token;
+                continue;
+            }
+            if (token instanceof Operator) {
+                budget.checkPage(pageDeadline);
+                String name = ((Operator) token).getName();
+                if (hasFonts && isTextOperator(name)) {
+                    return true;
+                }
+                // 文本也可能位于表单XObject中，只检查实际绘制的表单
+                if ("Do".equals(name) && lastName != null
+                        && formHasTextLayer(lastName, resources, budget, pageDeadline, visited, depth)) {
+                    return true;
+                }
+            }
+            lastName = null;
+        }
+        return false;
+    }
+
+    private static boolean formHasTextLayer(COSName name, PDResources resources, ExtractBudget budget,
+                                            long pageDeadline, Set<COSStream> visited, int depth) throws IOException {
+        if (resources.isImageXObject(name)) {
+            return false;
+        }
+        PDXObject xObject = resources.getXObject(name);
+        if (!(xObject instanceof PDFormXObject)) {
+            return false;
+        }
+        PDFormXObject form = (PDFormXObject) xObject;
+        if (!visited.add(form.getCOSObject())) {
+            return false;
+        }
+        // 没有自身资源的表单沿用绘制它的内容流的资源
+        PDResources formResources = form.getResources() != null ? form.getResources() : resources;
+        return hasTextLayer(form, formResources, budget, pageDeadline, visited, depth + 1);
+    }
+
+    private static boolean isTextOperator(String name) {
+        return "Tj".equals(name) || "TJ".equals(name) || "'".equals(name) || "\"".equals(name);
     }
 
     /**
@@ -64,6 +554,19 @@ public class PDFUtils {
         return pageCount;
     }
 
+    /**
+     * 获取PDF文件页数
+     *
+     * @param source PDF数据源
+     * @return 页数
+     * @throws IOException IO异常
+     */
+    public static int getPageCount(PdfSource source) throws IOException {
+        try (PDDocument document = source.load()) {
+            return document.getNumberOfPages();
+        }
+    }
+
     /**
      * 导出PDF首页为图片
      *
@@ -72,7 +575,15 @@ public class PDFUtils {
      * @throws IOException IO异常
      */
     public static String exportPageToImage(InputStream pdfStream) throws IOException {
-        PDDocument document = PDDocument.load(pdfStream);
+        try (PDDocument document = PDDocument.load(pdfStream)) {
+            return renderCover(document);
+        }
+    }
+
+    /**
+     * 将已加载文档的首页渲染为Base64编码的PNG图片
+     */
+    private static String renderCover(PDDocument document) throws IOException {
         PDFRenderer renderer = new PDFRenderer(document);
         
         // 渲染第一页
@@ -83,7 +594,6 @@ public class PDFUtils {
         ImageIO.write(image, "png", baos);
         String base64Image = Base64.getEncoder().encodeToString(baos.toByteArray());
         
-        document.close();
         baos.close();
         
         return base64Image;
@@ -0,0 +1,98 @@
+package top.lvpi.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import top.lvpi.model.dto.pdf.PdfLoadMode;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * 可重复打开的PDF数据源
+ * 内存模式下持有文件内容；落盘模式下持有临时文件，每次打开都通过RandomAccessFile按需读取，
+ * 并按MemoryUsageSetting限制PDFBox解析时占用的堆内存。并行提取时每个任务各自打开一份文档
+ */
+@Slf4j
+public class PdfSource implements Closeable {
+
+    private final byte[] bytes;
+
+    private final File file;
+
+    private final PdfLoadMode mode;
+
+    /**
+     * MIXED模式下单个文档允许使用的堆内存字节数
+     */
+    private final long maxMainMemoryBytes;
+
+    /**
+     * 是否在关闭时删除文件
+     */
+    private final boolean temporary;
+
+    private PdfSource(byte[] bytes, File file, PdfLoadMode mode, long maxMainMemoryBytes, boolean temporary) {
+        this.bytes = bytes;
+        this.file = file;
+        this.mode = mode;
+        this.maxMainMemoryBytes = maxMainMemoryBytes;
+        this.temporary = temporary;
+    }
+
+    /**
+     * 基于内存中的文件内容创建数据源
+     */
+    public static PdfSource ofBytes(byte[] bytes) {
+        return new PdfSource(bytes, null, PdfLoadMode.MEMORY, -1, false);
+    }
+
+    /**
+     * 基于本地文件创建数据源，关闭时不会删除该文件
+     */
+    public static PdfSource ofFile(File file, PdfLoadMode mode, long maxMainMemoryBytes) {
+        return new PdfSource(null, file, mode, maxMainMemoryBytes, false);
+    }
+
+    /**
+     * 基于临时文件创建数据源，关闭时删除该文件
+     */
+    static PdfSource ofTempFile(File file, PdfLoadMode mode, long maxMainMemoryBytes) {
+        return new PdfSource(null, file, mode, maxMainMemoryBytes, true);
+    }
+
+    /**
+     * 打开一份新的PDDocument，调用方负责关闭
+     */
+    public PDDocument load() throws IOException {
+        if (bytes != null) {
+            return PDDocument.load(bytes);
+        }
+        return PDDocument.load(file, memoryUsageSetting());
+    }
+
+    public PdfLoadMode getMode() {
+        return mode;
+    }
+
+    private MemoryUsageSetting memoryUsageSetting() {
+        MemoryUsageSetting setting = mode == PdfLoadMode.TEMP_FILE
+                ? MemoryUsageSetting.setupTempFileOnly()
+                : MemoryUsageSetting.setupMixed(maxMainMemoryBytes);
+        // 临时文件与源文件放在同一目录
+        return setting.setTempDir(file.getAbsoluteFile().getParentFile());
+    }
+
+    @Override
+    public void close() {
+        if (temporary && file != null) {
+            try {
+                Files.deleteIfExists(file.toPath());
+            } catch (IOException e) {
+                log.warn("删除PDF临时文件失败: {}", file, e);
+            }
+        }
+    }
+}
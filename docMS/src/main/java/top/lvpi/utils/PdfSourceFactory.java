@@ -0,0 +1,94 @@
+package top.lvpi.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import top.lvpi.model.dto.pdf.PdfLoadMode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 按配置的加载方式创建PDF数据源
+ */
+@Slf4j
+@Component
+public class PdfSourceFactory {
+
+    /**
+     * 默认加载方式：memory、mixed、temp-file
+     */
+    @Value("${pdf.load.mode:memory}")
+    private String defaultMode;
+
+    /**
+     * mixed模式下单个文档允许使用的堆内存（MB）
+     */
+    @Value("${pdf.load.max-main-memory-mb:64}")
+    private long maxMainMemoryMb;
+
+    /**
+     * 落盘临时文件目录，为空时使用系统临时目录
+     */
+    @Value("${pdf.load.temp-dir:}")
+    private String tempDir;
+
+    /**
+     * 获取默认加载方式
+     */
+    public PdfLoadMode getDefaultMode() {
+        PdfLoadMode mode = PdfLoadMode.fromValue(defaultMode);
+        return mode == null ? PdfLoadMode.MEMORY : mode;
+    }
+
+    /**
+     * 打开本地文件，文件已在磁盘上，内存模式下也按MIXED方式按需读取
+     */
+    public PdfSource open(File file) {
+        PdfLoadMode mode = getDefaultMode();
+        return PdfSource.ofFile(file, mode == PdfLoadMode.MEMORY ? PdfLoadMode.MIXED : mode,
+                maxMainMemoryMb * 1024 * 1024);
+    }
+
+    /**
+     * 使用默认加载方式读取输入流
+     */
+    public PdfSource open(InputStream in) throws IOException {
+        return open(in, null);
+    }
+
+    /**
+     * 读取输入流并创建数据源，落盘模式下将输入流写入临时文件，不在堆中缓存整个文件
+     *
+     * @param in   PDF输入流，由调用方关闭
+     * @param mode 加载方式，为null时使用默认方式
+     * @return 数据源，使用完毕后需关闭以删除临时文件
+     * @throws IOException IO异常
+     */
+    public PdfSource open(InputStream in, PdfLoadMode mode) throws IOException {
+        PdfLoadMode loadMode = mode == null ? getDefaultMode() : mode;
+        if (loadMode == PdfLoadMode.MEMORY) {
+            return PdfSource.ofBytes(IOUtils.toByteArray(in));
+        }
+
+        Path tempFile = StringUtils.isBlank(tempDir)
+                ? Files.createTempFile("lp-pdf-", ".pdf")
+                : Files.createTempFile(Files.createDirectories(Paths.get(tempDir)), "lp-pdf-", ".pdf");
+        try {
+            Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        File file = tempFile.toFile();
+        log.debug("PDF已写入临时文件: {}，大小: {} 字节，加载方式: {}", file, file.length(), loadMode);
+        return PdfSource.ofTempFile(file, loadMode, maxMainMemoryMb * 1024 * 1024);
+    }
+}
@@ -0,0 +1,108 @@
+package top.lvpi.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.util.DigestUtils;
+import top.lvpi.common.BusinessException;
+import top.lvpi.common.ErrorCode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 游标翻页的状态，编码为不透明的字符串交给调用方，下一页原样带回
+ * 包含时间点(PIT)ID、上一页最后一条的排序值、首页统计的命中总数和检索条件摘要；
+ * 后续页在同一时间点上用search_after续读，每页开销相同，结果不受翻页期间的索引写入影响
+ */
+@Data
+@NoArgsConstructor
+public class SearchCursor {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * 时间点ID，ES每次响应可能返回新的ID，须使用最新的
+     */
+    private String pitId;
+
+    /**
+     * 上一页最后一条的排序值，包括ES自动追加的_shard_doc
+     */
+    private List<Object> searchAfter;
+
+    /**
+     * 首页统计的命中总数，后续页不再统计
+     */
+    private long total;
+
+    /**
+     * 检索条件摘要，防止游标与其他检索条件混用
+     */
+    private String fingerprint;
+
+    public SearchCursor(String pitId, List<Object> searchAfter, long total, String fingerprint) {
+        this.pitId = pitId;
+        this.searchAfter = searchAfter;
+        this.total = total;
+        this.fingerprint = fingerprint;
+    }
+
+    public String encode() {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(this));
+        } catch (Exception e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "生成翻页游标失败");
+        }
+    }
+
+    /**
+     * 解析游标并核对检索条件
+     *
+     * @param cursor      调用方带回的游标
+     * @param fingerprint 本次检索条件的摘要
+     */
+    public static SearchCursor decode(String cursor, String fingerprint) {
+        SearchCursor state;
+        try {
+            state = MAPPER.readValue(Base64.getUrlDecoder().decode(cursor), SearchCursor.class);
+        } catch (Exception e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "无效的翻页游标");
+        }
+        if (state.getPitId() == null || !fingerprint.equals(state.getFingerprint())) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "翻页游标与检索条件不一致");
+        }
+        return state;
+    }
+
+    /**
+     * 只解析出时间点ID，用于提前释放
+     */
+    public static String pitIdOf(String cursor) {
+        try {
+            return MAPPER.readValue(Base64.getUrlDecoder().decode(cursor), SearchCursor.class).getPitId();
+        } catch (Exception e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "无效的翻页游标");
+        }
+    }
+
+    /**
+     * 检索条件摘要：按名称排序，去掉空条件
+     */
+    public static String fingerprint(Map<String, ?> query) {
+        Map<String, Object> canonical = new TreeMap<>();
+        query.forEach((name, value) -> {
+            if (value != null && !(value instanceof String && ((String) value).isBlank())) {
+                canonical.put(name, value);
+            }
+        });
+        try {
+            return DigestUtils.md5DigestAsHex(MAPPER.writeValueAsString(canonical).getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "生成翻页游标失败");
+        }
+    }
+}
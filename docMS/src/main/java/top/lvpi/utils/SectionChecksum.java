@@ -0,0 +1,33 @@
+package top.lvpi.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * 章节校验值，写入ES文档的content_hash字段，用于按章节增量同步和与数据库逐本比对
+ * 由章节ID和lp_doc_section.content_hash（页码与内容的CRC32，写入章节时计算）计算，不需要读取正文；
+ * 算法须与DocSectionMapper.selectDocChecksums中的SQL一致：CRC32(CONCAT(id, ':', IFNULL(content_hash, '')))
+ */
+public final class SectionChecksum {
+
+    private SectionChecksum() {
+    }
+
+    /**
+     * 章节的content_hash，须与DocSectionMapper中补齐和刷新校验值的SQL一致：
+     * CRC32(CONCAT(IFNULL(page_num, ''), ':', IFNULL(section_text, '')))，section_text为utf8mb4
+     */
+    public static long contentHash(Integer pageNum, String content) {
+        String value = (pageNum == null ? "" : pageNum.toString()) + ":" + (content == null ? "" : content);
+        CRC32 crc = new CRC32();
+        crc.update(value.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    public static long of(Long id, Long contentHash) {
+        String value = id + ":" + (contentHash == null ? "" : contentHash);
+        CRC32 crc = new CRC32();
+        crc.update(value.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,87 @@
+package top.lvpi.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 合并并发的相同请求：同一键同时只执行一次加载，其余调用方等待同一个CompletableFuture，得到相同的结果或异常。
+ * 加载结束后立即移除，之后的调用重新加载，结果的复用交给缓存
+ */
+public class SingleFlight {
+
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 实际执行加载的次数
+     */
+    private final AtomicLong leaders = new AtomicLong();
+
+    /**
+     * 等待其他调用方加载结果的次数
+     */
+    private final AtomicLong followers = new AtomicLong();
+
+    /**
+     * 执行加载，同一键已有进行中的加载时等待其结果
+     *
+     * @param key    请求键，相同的键视为相同请求
+     * @param loader 实际执行加载，不能再以相同的键调用本方法
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Supplier<T> loader) {
+        CompletableFuture<Object> created = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            followers.incrementAndGet();
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw e;
+            }
+        }
+
+        leaders.incrementAndGet();
+        try {
+            T value = loader.get();
+            created.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    public long leaders() {
+        return leaders.get();
+    }
+
+    public long followers() {
+        return followers.get();
+    }
+
+    /**
+     * 共享比例：等待他人结果的调用占全部调用的比例
+     */
+    public double shareRatio() {
+        long following = followers.get();
+        long total = leaders.get() + following;
+        return total == 0 ? 0 : (double) following / total;
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+}
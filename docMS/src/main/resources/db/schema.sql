@@ -49,6 +49,9 @@ CREATE TABLE IF NOT EXISTS lp_doc (
   series varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '众编',
   score int NULL DEFAULT NULL COMMENT '评分；带不可消除的水印的0，低质量的1，高质量的5',
   is_extracted int NULL DEFAULT NULL COMMENT '是否已经抽取文本',
+  extracted_page int NULL DEFAULT 0 COMMENT '已完成文本提取的最后页码，用于断点续提',
+  scanned_ratio double NULL DEFAULT NULL COMMENT '没有文本层的扫描页占比',
+  failed_pages text NULL COMMENT '超过单页时限未能提取的页码，逗号分隔，重新提取时只处理这些页',
   has_parse_opac_topic int NULL DEFAULT NULL COMMENT '是否已解析opac主题词',
   is_indexed int NULL DEFAULT 0 COMMENT '是否进行elasticsearch索引',
   is_deleted int NULL DEFAULT 0 COMMENT '是否已删除',
@@ -81,11 +84,12 @@ CREATE TABLE IF NOT EXISTS `lp_doc_section` (
   `section_text` text CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL COMMENT '分段的文本内容',
   `page_num` int NULL DEFAULT NULL COMMENT '分段所在的页码',
   `coordinates` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '分段坐标',
+  `content_hash` bigint unsigned NULL DEFAULT NULL COMMENT '页码与内容的校验值，写入时计算',
   `create_time` datetime NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   `modified_time` datetime NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '修改时间',
   `is_deleted` int NULL DEFAULT 0 COMMENT '是否删除',
   PRIMARY KEY (`id`) USING BTREE,
-  INDEX `idx_doc_id`(`doc_id` ASC) USING BTREE
+  INDEX `idx_doc_page`(`doc_id` ASC, `page_num` ASC) USING BTREE
 ) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '图书章节表' ROW_FORMAT = Dynamic;
 
 -- 主题表
@@ -191,4 +195,18 @@ CREATE TABLE IF NOT EXISTS `lp_doc_file` (
   INDEX `idx_doc_id`(`doc_id`) USING BTREE,
   INDEX `idx_file_id`(`file_id`) USING BTREE,
   UNIQUE INDEX `idx_doc_file`(`doc_id`, `file_id`, `is_deleted`) USING BTREE COMMENT '避免重复关联'
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='书籍文件关联表';
\ No newline at end of file
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='书籍文件关联表';
+
+-- ES同步发件箱：章节/图书的变更与业务数据在同一事务中写入，由后台任务批量同步到ES
+CREATE TABLE IF NOT EXISTS `lp_es_outbox` (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT '自增主键，按写入顺序处理',
+  `entity_type` varchar(16) NOT NULL COMMENT '实体类型：SECTION/DOC',
+  `entity_id` bigint NOT NULL COMMENT '章节ID或图书ID',
+  `op` varchar(16) NOT NULL COMMENT '操作：UPSERT/DELETE',
+  `attempts` int NOT NULL DEFAULT '0' COMMENT '已失败次数',
+  `last_error` varchar(512) DEFAULT NULL COMMENT '最近一次失败原因',
+  `next_retry_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '最早处理时间，失败后按次数退避',
+  `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  PRIMARY KEY (`id`),
+  INDEX `idx_next_retry`(`next_retry_time`) USING BTREE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='ES同步发件箱';
@@ -0,0 +1,87 @@
+package top.lvpi.service.impl;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 缓存键的规范化：只有keyword合并空白，其余条件与网关检索体按原样区分
+ */
+class SearchCacheServiceImplTest {
+
+    private static final TypeReference<String> TYPE = new TypeReference<String>() {
+    };
+
+    private SearchCacheServiceImpl cache;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        ValueOperations<String, Object> values = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(values.get(anyString())).thenReturn(null);
+        when(values.get("search:cache:generation")).thenReturn("0");
+
+        cache = new SearchCacheServiceImpl();
+        ReflectionTestUtils.setField(cache, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(cache, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "localMaxEntries", 100);
+        ReflectionTestUtils.setField(cache, "localTtlMs", 60000L);
+        ReflectionTestUtils.setField(cache, "redisTtlSeconds", 600L);
+        ReflectionTestUtils.setField(cache, "generationRefreshMs", 60000L);
+        ReflectionTestUtils.setField(cache, "writeGraceMs", 0L);
+        ReflectionTestUtils.setField(cache, "coalesceEnabled", true);
+        cache.init();
+    }
+
+    @Test
+    void keywordWhitespaceIsCollapsed() {
+        get("docs", Map.of("keyword", "java  并发"));
+        get("docs", Map.of("keyword", " java 并发 "));
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void exactConditionsAreNotTrimmed() {
+        get("sections", Map.of("isbn", "9787111"));
+        get("sections", Map.of("isbn", " 9787111"));
+
+        assertEquals(2, loads.get());
+    }
+
+    /**
+     * 只在短语内部空白不同的检索体对keyword字段的term或match_phrase查询结果不同，不能共用缓存
+     */
+    @Test
+    void gatewayBodiesAreKeyedExactly() {
+        String header = "{\"index\":\"books\"}\n";
+        get("gateway", Map.of("body", header + "{\"query\":{\"term\":{\"isbn\":\"a b\"}}}\n"));
+        get("gateway", Map.of("body", header + "{\"query\":{\"term\":{\"isbn\":\"a  b\"}}}\n"));
+        get("gateway", Map.of("body", header + "{\"query\":{\"term\":{\"isbn\":\"a b\"}}}\n"));
+
+        assertEquals(2, loads.get());
+    }
+
+    private String get(String namespace, Map<String, ?> query) {
+        return cache.get(namespace, query, TYPE, () -> "result-" + loads.incrementAndGet());
+    }
+}
@@ -0,0 +1,101 @@
+package top.lvpi.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import top.lvpi.common.BusinessException;
+import top.lvpi.service.EsIndexService;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 检索网关对_msearch请求体的校验与改写
+ */
+class SearchGatewayServiceImplTest {
+
+    private static final String HEADER = "{\"index\":\"books\"}\n";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private SearchGatewayServiceImpl gateway;
+
+    @BeforeEach
+    void setUp() {
+        EsIndexService esIndexService = mock(EsIndexService.class);
+        when(esIndexService.getReadAlias()).thenReturn("books");
+
+        gateway = new SearchGatewayServiceImpl();
+        ReflectionTestUtils.setField(gateway, "esIndexService", esIndexService);
+        ReflectionTestUtils.setField(gateway, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(gateway, "maxSearches", 20);
+        ReflectionTestUtils.setField(gateway, "maxSize", 100);
+        ReflectionTestUtils.setField(gateway, "maxResultWindow", 10000);
+        ReflectionTestUtils.setField(gateway, "maxAggregations", 30);
+        ReflectionTestUtils.setField(gateway, "maxBucketSize", 200);
+        ReflectionTestUtils.setField(gateway, "maxFragmentSize", 300);
+        ReflectionTestUtils.setField(gateway, "maxFragments", 5);
+        ReflectionTestUtils.setField(gateway, "timeoutMs", 10000L);
+        ReflectionTestUtils.setField(gateway, "trackTotalHitsUpTo", 10000);
+    }
+
+    /**
+     * scripted_metric的各阶段脚本以字符串形式给出，没有名为script的字段
+     */
+    @Test
+    void scriptedMetricIsRejected() {
+        String search = "{\"size\":0,\"aggs\":{\"x\":{\"scripted_metric\":{"
+                + "\"init_script\":\"state.v = []\","
+                + "\"map_script\":\"state.v.add(1)\","
+                + "\"combine_script\":\"return state.v\","
+                + "\"reduce_script\":\"return states\"}}}}";
+
+        assertThrows(BusinessException.class, () -> gateway.rewrite(null, HEADER + search + "\n"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"query\":{\"script\":{\"script\":{\"source\":\"true\"}}}}",
+            "{\"aggs\":{\"a\":{\"terms\":{\"field\":\"book_id\"},\"aggs\":{\"b\":{\"bucket_script\":{\"buckets_path\":{},\"script\":\"1\"}}}}}}",
+            "{\"aggs\":{\"a\":{\"terms\":{\"field\":\"book_id\"},\"aggs\":{\"b\":{\"bucket_selector\":{\"buckets_path\":{},\"script\":\"1\"}}}}}}",
+            "{\"aggs\":{\"a\":{\"scripted_metric\":{\"map_script\":{\"id\":\"stored\"}}}}}",
+            "{\"query\":{\"match_all\":{}},\"script_fields\":{\"f\":{}}}",
+            "{\"query\":{\"match_all\":{}},\"runtime_mappings\":{\"f\":{\"type\":\"keyword\"}}}"
+    })
+    void scriptsAreRejectedAtAnyLevel(String search) {
+        assertThrows(BusinessException.class, () -> gateway.rewrite(null, HEADER + search + "\n"));
+    }
+
+    @Test
+    void otherIndexIsRejected() {
+        assertThrows(BusinessException.class,
+                () -> gateway.rewrite(null, "{\"index\":\"lp_user\"}\n{\"query\":{\"match_all\":{}}}\n"));
+    }
+
+    @Test
+    void searchIsCappedAndHeaderReduced() throws IOException {
+        String body = "{\"index\":\"books\",\"preference\":\"p\"}\n"
+                + "{\"size\":1000,\"query\":{\"match\":{\"section_text\":\"a\"}},"
+                + "\"aggs\":{\"t\":{\"terms\":{\"field\":\"book_id\",\"size\":100000}}},"
+                + "\"highlight\":{\"fields\":{\"section_text\":{\"number_of_fragments\":0}}}}\n";
+
+        String[] lines = gateway.rewrite(null, body).split("\n");
+
+        assertEquals(2, lines.length);
+        assertEquals("{\"index\":\"books\"}", lines[0]);
+        JsonNode search = objectMapper.readTree(lines[1]);
+        assertEquals(100, search.get("size").asInt());
+        assertEquals(200, search.at("/aggs/t/terms/size").asInt());
+        assertEquals(5, search.at("/highlight/fields/section_text/number_of_fragments").asInt());
+        assertEquals(10000, search.get("track_total_hits").asInt());
+        assertEquals("10000ms", search.get("timeout").asText());
+    }
+}
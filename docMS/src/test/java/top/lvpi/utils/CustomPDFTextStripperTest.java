@@ -0,0 +1,43 @@
+package top.lvpi.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * reflow的黄金文件测试
+ * reflow/{name}.txt为PDFTextStripper输出的原始文本，{name}.expected.txt为改写前的正则实现对同一输入的输出，
+ * 两者须逐字节一致
+ */
+class CustomPDFTextStripperTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"headings", "bullets", "em-space", "blank-lines"})
+    void reflowMatchesGoldenOutput(String name) throws IOException {
+        String input = read("reflow/" + name + ".txt");
+        String expected = read("reflow/" + name + ".expected.txt");
+
+        assertEquals(expected, CustomPDFTextStripper.reflow(input));
+    }
+
+    @Test
+    void reflowOfOnlyNewlinesFailsLikeBefore() {
+        // 原实现在没有任何内容行时除以满行数0，保持相同的异常
+        assertThrows(ArithmeticException.class, () -> CustomPDFTextStripper.reflow("\n\n\n"));
+    }
+
+    private static String read(String path) throws IOException {
+        try (InputStream in = CustomPDFTextStripperTest.class.getClassLoader().getResourceAsStream(path)) {
+            assertNotNull(in, "缺少测试文件: " + path);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
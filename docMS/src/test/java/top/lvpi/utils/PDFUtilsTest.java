@@ -0,0 +1,135 @@
+package top.lvpi.utils;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PDFUtilsTest {
+
+    /**
+     * 表单没有自身资源时沿用页面资源，页面资源中又包含该表单，形成自引用
+     */
+    @Test
+    void selfReferencingFormIsVisitedOnce() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            PDResources resources = new PDResources();
+            PDFormXObject form = form(document, "/F1 Do");
+            resources.put(COSName.getPDFName("F1"), form);
+            page.setResources(resources);
+            setContents(document, page, "/F1 Do");
+
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertFalse(PDFUtils.hasTextLayer(page)));
+        }
+    }
+
+    /**
+     * 多个互相绘制的表单：不记录已检查的表单时访问次数随嵌套深度指数增长
+     */
+    @Test
+    void mutuallyReferencingFormsDoNotExplode() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            StringBuilder drawAll = new StringBuilder();
+            for (int i = 0; i < 20; i++) {
+                drawAll.append("/F").append(i).append(" Do\n");
+            }
+            PDResources resources = new PDResources();
+            for (int i = 0; i < 20; i++) {
+                resources.put(COSName.getPDFName("F" + i), form(document, drawAll.toString()));
+            }
+            page.setResources(resources);
+            setContents(document, page, drawAll.toString());
+
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertFalse(PDFUtils.hasTextLayer(page)));
+        }
+    }
+
+    @Test
+    void textInDrawnFormIsFound() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            PDResources formResources = new PDResources();
+            COSName font = formResources.add(PDType1Font.HELVETICA);
+            PDFormXObject form = form(document, "BT /" + font.getName() + " 12 Tf (text) Tj ET");
+            form.setResources(formResources);
+            PDResources resources = new PDResources();
+            resources.put(COSName.getPDFName("Fm1"), form);
+            page.setResources(resources);
+            setContents(document, page, "q /Fm1 Do Q");
+
+            assertTrue(PDFUtils.hasTextLayer(page));
+        }
+    }
+
+    @Test
+    void textInFormThatIsNotDrawnIsIgnored() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            PDResources formResources = new PDResources();
+            COSName font = formResources.add(PDType1Font.HELVETICA);
+            PDFormXObject form = form(document, "BT /" + font.getName() + " 12 Tf (text) Tj ET");
+            form.setResources(formResources);
+            PDResources resources = new PDResources();
+            resources.put(COSName.getPDFName("Fm1"), form);
+            page.setResources(resources);
+            setContents(document, page, "0 0 m 10 10 l S");
+
+            assertFalse(PDFUtils.hasTextLayer(page));
+        }
+    }
+
+    @Test
+    void cancelledBudgetStopsTheCheck() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            PDResources resources = new PDResources();
+            resources.put(COSName.getPDFName("F1"), form(document, "/F1 Do"));
+            page.setResources(resources);
+            setContents(document, page, "/F1 Do");
+            CancellationToken token = new CancellationToken();
+            token.cancel();
+
+            assertThrows(ExtractBudget.AbortedException.class,
+                    () -> PDFUtils.hasTextLayer(page, ExtractBudget.start(0, 0, token)));
+        }
+    }
+
+    private static PDFormXObject form(PDDocument document, String content) throws IOException {
+        PDFormXObject form = new PDFormXObject(document);
+        form.setBBox(new PDRectangle(100, 100));
+        try (OutputStream out = form.getContentStream().createOutputStream()) {
+            out.write(content.getBytes(StandardCharsets.US_ASCII));
+        }
+        return form;
+    }
+
+    private static void setContents(PDDocument document, PDPage page, String content) throws IOException {
+        PDStream stream = new PDStream(document);
+        try (OutputStream out = stream.createOutputStream()) {
+            out.write(content.getBytes(StandardCharsets.US_ASCII));
+        }
+        page.setContents(stream);
+    }
+}